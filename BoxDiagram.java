@@ -2,18 +2,35 @@
 // This program allows the user to create a set of boxes with labels // and then drag them around in the window.
 import acm.graphics.*;
 import acm.program.*;
+import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.awt.event.*;
 import javax.swing.*;
+import javax.swing.Timer;
 
 public class BoxDiagram extends GraphicsProgram {
 
 	/* Initializes the program */
 	public void init() {
 		contents = new HashMap<String,GObject>(); 
+		index = new GridIndex(INDEX_CELL_SIZE);
 		createController();
 		addActionListeners(); 
 		addMouseListeners();
+		getGCanvas().addComponentListener(new ComponentAdapter() {
+			public void componentResized(ComponentEvent e) {
+				materializeVisible();
+			}
+		});
+		if (FRAME_RENDERING) {
+			getGCanvas().setAutoRepaintFlag(false);
+			frameTimer = new Timer(FRAME_MILLIS, new ActionListener() {
+				public void actionPerformed(ActionEvent e) {
+					commitDrag();
+				}
+			});
+		}
 	}
 
 	/* Creates the control strip at the bottom of the window */ 
@@ -23,38 +40,108 @@ public class BoxDiagram extends GraphicsProgram {
 		addButton = new JButton("Add"); 
 		removeButton = new JButton("Remove"); 
 		clearButton = new JButton("Clear"); 
+		importButton = new JButton("Import"); 
+		saveButton = new JButton("Save"); 
+		loadButton = new JButton("Load"); 
+		statusLabel = new JLabel(""); 
 		add(new JLabel("Name"), SOUTH); 
 		add(nameField, SOUTH);
 		add(addButton, SOUTH);
 		add(removeButton, SOUTH);
 		add(clearButton, SOUTH);
+		add(importButton, SOUTH);
+		add(saveButton, SOUTH);
+		add(loadButton, SOUTH);
+		add(statusLabel, SOUTH);
 	}
 
 	/* Adds a box with the given name at the center of the window */ 
 	private void addBox(String name) {
+		GCompound box = createBox(name);
+		add(box, getWidth() / 2, getHeight() / 2);
+		contents.put(name, box);
+		index.add(box);
+		repaintArea(box.getBounds());
+	}
+
+	/* Creates a box with the given name centered at the origin, it may be called on any thread */
+	private static GCompound createBox(String name) {
 		GCompound box = new GCompound();
 		GRect outline = new GRect(BOX_WIDTH, BOX_HEIGHT);
 		GLabel label = new GLabel(name);
 		box.add(outline, -BOX_WIDTH / 2, -BOX_HEIGHT / 2); 
 		box.add(label, -label.getWidth() / 2, label.getAscent() / 2); 
-		add(box, getWidth() / 2, getHeight() / 2);
-		contents.put(name, box);
+		return box;
+	}
+
+	/* Adds boxes that have already been placed with a single repaint */
+	private void addBoxes(List<String> names, List<GObject> boxes) {
+		GCanvas canvas = getGCanvas();
+		boolean autoRepaint = canvas.getAutoRepaintFlag();
+		canvas.setAutoRepaintFlag(false);
+		for (int i = 0; i < boxes.size(); i++) {
+			GObject box = boxes.get(i);
+			canvas.add(box);
+			contents.put(names.get(i), box);
+			index.add(box);
+		}
+		canvas.setAutoRepaintFlag(autoRepaint);
+		canvas.repaint();
+	}
+
+	/* 
+	 * Removes the boxes with the given names in one pass with a single 
+	 * repaint: the canvas is emptied and the remaining boxes are added
+	 * again in their order, instead of searching the canvas for each box
+	 */
+	private void removeBoxes(Collection<String> names) {
+		HashSet<GObject> removed = new HashSet<GObject>();
+		for (String name : names) {
+			GObject obj = contents.remove(name);
+			if (obj != null) {
+				removed.add(obj);
+				index.remove(obj);
+			}
+		}
+		if (removed.isEmpty()) return;
+		GCanvas canvas = getGCanvas();
+		ArrayList<GObject> kept = new ArrayList<GObject>(canvas.getElementCount());
+		for (int i = 0; i < canvas.getElementCount(); i++) {
+			GObject obj = canvas.getElement(i);
+			if (!removed.contains(obj)) kept.add(obj);
+		}
+		boolean autoRepaint = canvas.getAutoRepaintFlag();
+		canvas.setAutoRepaintFlag(false);
+		canvas.removeAll();
+		for (GObject obj : kept) canvas.add(obj);
+		canvas.setAutoRepaintFlag(autoRepaint);
+		canvas.repaint();
 	}
 
 	/* Removes the box with the given name */
 	private void removeBox(String name) {
-		GObject obj = contents.get(name);
+		GObject obj = contents.remove(name);
 		if (obj != null) {
 			remove(obj);
+			index.remove(obj);
+			repaintArea(obj.getBounds());
 		}
 	}
 
-	/* Removes all boxes in the contents table */
+	/* Removes all boxes in the contents table, clearing the canvas in one step */
 	private void removeContents() {
-		Iterator<String> iterator = contents.keySet().iterator(); while (iterator.hasNext()) {
-			removeBox(iterator.next());
+		if (importer != null) {
+			/* the batches still on their way belong to the diagram being removed */
+			importer.cancel();
+			importer = null;
 		}
+		removeAll();
 		contents.clear(); // Clear all entries in the hashmap 
+		index.clear();
+		diagramFile = null;
+		materialized = null;
+		recordOf = null;
+		if (FRAME_RENDERING) getGCanvas().repaint();
 	}
 
 	/* Called in response to button actions */ 
@@ -63,44 +150,378 @@ public class BoxDiagram extends GraphicsProgram {
 		if (source == addButton || source == nameField) {
 			addBox(nameField.getText());
 		} else if (source == removeButton) {
-			removeBox(nameField.getText());
+			String[] names = nameField.getText().split(NAME_SEPARATOR);
+			if (names.length == 1) {
+				removeBox(names[0]);
+			} else {
+				removeBoxes(Arrays.asList(names));
+			}
 		} else if (source == clearButton) {
 			removeContents();
+		} else if (source == importButton) {
+			startImport(new File(nameField.getText()));
+		} else if (source == saveButton) {
+			save(new File(nameField.getText()));
+		} else if (source == loadButton) {
+			load(new File(nameField.getText()));
 		}
 	}
 
-	/* Called on mouse press to record the coordinates of the click */ 
+	/* Called on mouse press to record the coordinates of the click and find the box there */ 
 	public void mousePressed(MouseEvent e) {
-		last = new GPoint(e.getPoint());
-		currentObject = getElementAt(last);
+		lastX = pendingX = e.getX();
+		lastY = pendingY = e.getY();
+		currentObject = index.getElementAt(lastX, lastY);
+		if (FRAME_RENDERING && currentObject != null) frameTimer.start();
 	}
 
-	/* Called on mouse drag to reposition the object */ 
+	/* Called on mouse drag to reposition the object, once per frame in frame rendering mode */ 
 	public void mouseDragged(MouseEvent e) {
 		if (currentObject != null) { 
-			currentObject.move(e.getX() - last.getX(),
-					e.getY() - last.getY());
-			last = new GPoint(e.getPoint());
+			pendingX = e.getX();
+			pendingY = e.getY();
+			if (!FRAME_RENDERING) commitDrag();
 		} 
 	}
 
+	/* Called on mouse release to put the object where the drag ended */
+	public void mouseReleased(MouseEvent e) {
+		if (FRAME_RENDERING) {
+			commitDrag();
+			frameTimer.stop();
+		}
+	}
+
 	/* Called on mouse click to move this object to the front */ 
 	public void mouseClicked(MouseEvent e) {
-		if (currentObject != null) currentObject.sendToFront(); 
+		if (currentObject != null) {
+			currentObject.sendToFront(); 
+			index.bringToFront(currentObject);
+			repaintArea(currentObject.getBounds());
+		}
 	}
 	
+	/* 
+	 * Saves the diagram as a DiagramFile in its stacking order: the boxes 
+	 * on the canvas in their order, with each box of a loaded file that has
+	 * never been shown in its place among the boxes of that file
+	 */
+	private void save(File file) {
+		GCanvas canvas = getGCanvas();
+		int capacity = canvas.getElementCount() + (diagramFile == null ? 0 : diagramFile.size());
+		String[] names = new String[capacity];
+		double[] x = new double[capacity];
+		double[] y = new double[capacity];
+		BitSet shown = new BitSet(capacity);
+		IdentityHashMap<GObject,Integer> savedRecords = new IdentityHashMap<GObject,Integer>();
+		int count = 0;
+		int unshown = diagramFile == null ? 0 : materialized.nextClearBit(0);
+		int nRecords = diagramFile == null ? 0 : diagramFile.size();
+		IdentityHashMap<GObject,String> namesOfBoxes = new IdentityHashMap<GObject,String>();
+		for (Map.Entry<String,GObject> entry : contents.entrySet()) {
+			namesOfBoxes.put(entry.getValue(), entry.getKey());
+		}
+		for (int i = 0; i < canvas.getElementCount(); i++) {
+			GObject box = canvas.getElement(i);
+			String name = namesOfBoxes.get(box);
+			if (name == null) continue;
+			Integer record = recordOf == null ? null : recordOf.get(box);
+			/* boxes added since the file was loaded lie above all of its boxes */
+			while (unshown < nRecords && (record == null || unshown < record)) {
+				names[count] = diagramFile.getName(unshown);
+				x[count] = diagramFile.getX(unshown);
+				y[count] = diagramFile.getY(unshown);
+				count++;
+				unshown = materialized.nextClearBit(unshown + 1);
+			}
+			names[count] = name;
+			x[count] = box.getX();
+			y[count] = box.getY();
+			shown.set(count);
+			savedRecords.put(box, count);
+			count++;
+		}
+		for (; unshown < nRecords; unshown = materialized.nextClearBit(unshown + 1)) {
+			names[count] = diagramFile.getName(unshown);
+			x[count] = diagramFile.getX(unshown);
+			y[count] = diagramFile.getY(unshown);
+			count++;
+		}
+		try {
+			DiagramFile.save(file, names, x, y, count);
+			statusLabel.setText("Saved " + count + " boxes");
+		} catch (IOException ex) {
+			statusLabel.setText("Save failed: " + ex.getMessage());
+			return;
+		}
+		/* continue with the saved file */
+		try {
+			diagramFile = DiagramFile.open(file);
+			materialized = shown;
+			recordOf = savedRecords;
+		} catch (IOException ex) {
+			diagramFile = null;
+			materialized = null;
+			recordOf = null;
+			statusLabel.setText("Saved " + count + " boxes, but cannot reopen: " + ex.getMessage());
+		}
+	}
+
+	/* Replaces the diagram by a DiagramFile, of which only the visible boxes are created */
+	private void load(File file) {
+		try {
+			DiagramFile loaded = DiagramFile.open(file);
+			removeContents();
+			diagramFile = loaded;
+			materialized = new BitSet(loaded.size());
+			recordOf = new IdentityHashMap<GObject,Integer>();
+			materializeVisible();
+			statusLabel.setText("Loaded " + loaded.size() + " boxes");
+		} catch (IOException ex) {
+			statusLabel.setText("Load failed: " + ex.getMessage());
+		}
+	}
+
+	/* 
+	 * Creates the boxes of the loaded file that lie in the window and have 
+	 * not been created yet; this reads only the positions of the others
+	 */
+	private void materializeVisible() {
+		if (diagramFile == null) return;
+		double width = getGCanvas().getWidth();
+		double height = getGCanvas().getHeight();
+		ArrayList<String> names = new ArrayList<String>();
+		ArrayList<GObject> boxes = new ArrayList<GObject>();
+		ArrayList<Integer> records = new ArrayList<Integer>();
+		for (int i = materialized.nextClearBit(0); i < diagramFile.size(); i = materialized.nextClearBit(i + 1)) {
+			double x = diagramFile.getX(i);
+			double y = diagramFile.getY(i);
+			if (x + BOX_WIDTH / 2 < 0 || x - BOX_WIDTH / 2 > width 
+					|| y + BOX_HEIGHT / 2 < 0 || y - BOX_HEIGHT / 2 > height) {
+				continue;
+			}
+			String name = diagramFile.getName(i);
+			GCompound box = createBox(name);
+			box.setLocation(x, y);
+			names.add(name);
+			boxes.add(box);
+			records.add(i);
+			materialized.set(i);
+		}
+		if (!boxes.isEmpty()) addRecordBoxes(names, boxes, records);
+	}
+
+	/* 
+	 * Adds boxes of the loaded file in their place in the stacking order, 
+	 * below the boxes that follow them in the file; the canvas and the 
+	 * index are filled again in the merged order with a single repaint
+	 */
+	private void addRecordBoxes(List<String> names, List<GObject> boxes, List<Integer> records) {
+		GCanvas canvas = getGCanvas();
+		ArrayList<GObject> order = new ArrayList<GObject>(canvas.getElementCount() + boxes.size());
+		int next = 0;
+		for (int i = 0; i < canvas.getElementCount(); i++) {
+			GObject obj = canvas.getElement(i);
+			Integer record = recordOf.get(obj);
+			/* boxes added since the file was loaded lie above all of its boxes */
+			while (next < boxes.size() && (record == null || records.get(next) < record)) {
+				order.add(boxes.get(next++));
+			}
+			order.add(obj);
+		}
+		while (next < boxes.size()) order.add(boxes.get(next++));
+		for (int i = 0; i < boxes.size(); i++) {
+			contents.put(names.get(i), boxes.get(i));
+			recordOf.put(boxes.get(i), records.get(i));
+		}
+		boolean autoRepaint = canvas.getAutoRepaintFlag();
+		canvas.setAutoRepaintFlag(false);
+		canvas.removeAll();
+		index.clear();
+		for (GObject obj : order) {
+			canvas.add(obj);
+			index.add(obj);
+		}
+		canvas.setAutoRepaintFlag(autoRepaint);
+		canvas.repaint();
+	}
+
+	/* Starts loading the boxes listed in a file on a background thread */
+	private void startImport(File file) {
+		if (importer != null) return;
+		importer = new Importer(file, getWidth());
+		Thread thread = new Thread(importer, "Diagram import");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/* 
+	 * Reads a diagram file with one box per line, either "x y name" or just 
+	 * a name for boxes laid out in rows, and adds the boxes in batches on 
+	 * the event thread, so that the first boxes are shown while the rest 
+	 * of the file is still being read. At most a few batches wait for the
+	 * event thread at any time.
+	 */
+	private class Importer implements Runnable {
+
+		public Importer(File file, double width) {
+			this.file = file;
+			perRow = Math.max(1, (int) (width / (BOX_WIDTH + BOX_SPACING)));
+		}
+
+		public void run() {
+			try {
+				BufferedReader reader = new BufferedReader(new FileReader(file));
+				try {
+					ArrayList<String> names = new ArrayList<String>(IMPORT_BATCH_SIZE);
+					ArrayList<GObject> boxes = new ArrayList<GObject>(IMPORT_BATCH_SIZE);
+					String line;
+					while ((line = reader.readLine()) != null) {
+						if (cancelled) return;
+						if (line.trim().isEmpty()) continue;
+						readBox(line, names, boxes);
+						if (boxes.size() == IMPORT_BATCH_SIZE) {
+							commit(names, boxes, false);
+							names = new ArrayList<String>(IMPORT_BATCH_SIZE);
+							boxes = new ArrayList<GObject>(IMPORT_BATCH_SIZE);
+						}
+					}
+					commit(names, boxes, true);
+				} finally {
+					reader.close();
+				}
+			} catch (IOException ex) {
+				finish("Import failed: " + ex.getMessage());
+			} catch (InterruptedException ex) {
+				finish("Import interrupted");
+			}
+		}
+
+		/* Stops the import, batches not yet added are dropped; called on the event thread */
+		public void cancel() {
+			cancelled = true;
+		}
+
+		/* Creates the box of a line, placed at its coordinates or in the next free place */
+		private void readBox(String line, List<String> names, List<GObject> boxes) {
+			String[] fields = line.trim().split("\\s+", 3);
+			GCompound box;
+			if (fields.length == 3 && isNumber(fields[0]) && isNumber(fields[1])) {
+				box = createBox(fields[2]);
+				box.setLocation(Double.parseDouble(fields[0]), Double.parseDouble(fields[1]));
+				names.add(fields[2]);
+			} else {
+				box = createBox(line.trim());
+				box.setLocation((BOX_WIDTH + BOX_SPACING) * (nPlaced % perRow + 0.5), 
+						(BOX_HEIGHT + BOX_SPACING) * (nPlaced / perRow + 0.5));
+				nPlaced++;
+				names.add(line.trim());
+			}
+			boxes.add(box);
+		}
+
+		/* Hands a batch to the event thread, waiting while too many are pending */
+		private void commit(final List<String> names, final List<GObject> boxes, final boolean last) 
+				throws InterruptedException {
+			pendingBatches.acquire();
+			if (cancelled) return;
+			nRead += boxes.size();
+			final long count = nRead;
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					pendingBatches.release();
+					if (cancelled) return;
+					addBoxes(names, boxes);
+					statusLabel.setText((last ? "Imported " : "Importing ") + count + " boxes");
+					if (last) importer = null;
+				}
+			});
+		}
+
+		private void finish(final String message) {
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					if (cancelled) return;
+					statusLabel.setText(message);
+					importer = null;
+				}
+			});
+		}
+
+		private boolean isNumber(String text) {
+			try {
+				Double.parseDouble(text);
+				return true;
+			} catch (NumberFormatException ex) {
+				return false;
+			}
+		}
+
+		private File file;
+		private int perRow;
+		private long nPlaced;
+		private long nRead;
+		private volatile boolean cancelled;
+		private Semaphore pendingBatches = new Semaphore(MAX_PENDING_BATCHES);
+	}
+
+	/* Moves the dragged object by the mouse movement since the last move */
+	private void commitDrag() {
+		if (currentObject == null || (pendingX == lastX && pendingY == lastY)) return;
+		GRectangle dirty = currentObject.getBounds();
+		currentObject.move(pendingX - lastX, pendingY - lastY);
+		index.update(currentObject);
+		lastX = pendingX;
+		lastY = pendingY;
+		dirty.add(currentObject.getBounds());
+		repaintArea(dirty);
+	}
+
+	/* Repaints only the given area of the canvas in frame rendering mode */
+	private void repaintArea(GRectangle area) {
+		if (!FRAME_RENDERING) return;
+		int x = (int) Math.floor(area.getX()) - REPAINT_MARGIN;
+		int y = (int) Math.floor(area.getY()) - REPAINT_MARGIN;
+		getGCanvas().repaint(x, y, (int) Math.ceil(area.getWidth()) + 2 * REPAINT_MARGIN, 
+				(int) Math.ceil(area.getHeight()) + 2 * REPAINT_MARGIN);
+	}
+
 	/* Private constants */
 	private static final int MAX_NAME = 25; 
 	private static final double BOX_WIDTH = 120; 
 	private static final double BOX_HEIGHT = 50;
+	private static final double INDEX_CELL_SIZE = 128;
+
+	/* Whether drags are coalesced per frame and only changed areas are repainted */
+	private static final boolean FRAME_RENDERING = true;
+	private static final int FRAME_MILLIS = 16;
+	private static final int REPAINT_MARGIN = 2;
+
+	private static final String NAME_SEPARATOR = "\\s*,\\s*";
+	private static final int IMPORT_BATCH_SIZE = 5000;
+	private static final int MAX_PENDING_BATCHES = 2;
+	private static final double BOX_SPACING = 10;
 	
 	/* Private instance variables */
 	private HashMap<String,GObject> contents; 
+	private GridIndex index;
 	private JTextField nameField;
 	private JButton addButton;
 	private JButton removeButton;
 	private JButton clearButton;
+	private JButton importButton;
+	private JButton saveButton;
+	private JButton loadButton;
+	private JLabel statusLabel;
+	private Importer importer;
+	private DiagramFile diagramFile;
+	private BitSet materialized;
+	private IdentityHashMap<GObject,Integer> recordOf;
 	private GObject currentObject;
-	private GPoint last;
+	private double lastX;
+	private double lastY;
+	private double pendingX;
+	private double pendingY;
+	private Timer frameTimer;
 
 }
\ No newline at end of file
@@ -0,0 +1,155 @@
+/*
+ * File: DiagramFile.java
+ * ----------------------
+ * This class stores the boxes of a BoxDiagram in a compact binary file 
+ * and reads it through a memory mapping, so that opening a large 
+ * diagram does not read the whole file: positions and names of boxes 
+ * are decoded only when asked for, and the operating system pages in
+ * only the parts of the file that are used.
+ *
+ * The file starts with a header of MAGIC, VERSION, the number of boxes
+ * and the size of the string table, followed by one fixed-width record
+ * per box (x and y of its center as floats, offset and length of its 
+ * name in the string table) and the string table of UTF-8 names. The 
+ * boxes are stored from the bottom to the top of the stacking order.
+ */
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+
+public class DiagramFile {
+
+	/**
+	 * Write a diagram to a file, replacing it only once it is complete, 
+	 * so that a mapping of the old file stays valid. Windows does not 
+	 * replace a file that is still mapped, so there a diagram cannot be 
+	 * saved to the file it was loaded from; the new diagram is then left
+	 * in the file with the extension .tmp.
+	 * @param file
+	 * @param names the names of the boxes
+	 * @param x the x coordinates of the centers of the boxes
+	 * @param y the y coordinates of the centers of the boxes
+	 * @param count the number of boxes
+	 */
+	public static void save(File file, String[] names, double[] x, double[] y, int count) 
+			throws IOException {
+		ByteArrayOutputStream strings = new ByteArrayOutputStream();
+		ByteBuffer records = ByteBuffer.allocate(HEADER_SIZE + count * RECORD_SIZE);
+		records.position(HEADER_SIZE);
+		for (int i = 0; i < count; i++) {
+			byte[] name = names[i].getBytes(UTF8);
+			records.putFloat((float) x[i]).putFloat((float) y[i]);
+			records.putInt(strings.size()).putInt(name.length);
+			strings.write(name);
+		}
+		records.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, count).putInt(12, strings.size());
+		records.flip();
+		File temp = new File(file.getPath() + ".tmp");
+		FileOutputStream out = new FileOutputStream(temp);
+		try {
+			FileChannel channel = out.getChannel();
+			while (records.hasRemaining()) channel.write(records);
+			strings.writeTo(out);
+		} finally {
+			out.close();
+		}
+		try {
+			Files.move(temp.toPath(), file.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (FileSystemException ex) {
+			/* no atomic move on this file system, or the target is in use */
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} catch (FileSystemException retryEx) {
+				throw new IOException("cannot replace " + file + ", the diagram is in " + temp, retryEx);
+			}
+		}
+	}
+
+	/**
+	 * Map a diagram file for reading
+	 * @param file
+	 * @return
+	 */
+	public static DiagramFile open(File file) throws IOException {
+		FileChannel channel = new FileInputStream(file).getChannel();
+		try {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new DiagramFile(buffer);
+		} finally {
+			/* the mapping stays valid after the channel is closed */
+			channel.close();
+		}
+	}
+
+	private DiagramFile(ByteBuffer buffer) throws IOException {
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException("not a diagram file");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("unsupported diagram version");
+		}
+		count = buffer.getInt(8);
+		stringsStart = HEADER_SIZE + (long) count * RECORD_SIZE;
+		if (count < 0 || stringsStart + buffer.getInt(12) != buffer.limit()) {
+			throw new IOException("diagram file is truncated");
+		}
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Return the number of boxes
+	 * @return
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Return the x coordinate of the center of a box
+	 * @param box
+	 * @return
+	 */
+	public double getX(int box) {
+		return buffer.getFloat(HEADER_SIZE + box * RECORD_SIZE);
+	}
+
+	/**
+	 * Return the y coordinate of the center of a box
+	 * @param box
+	 * @return
+	 */
+	public double getY(int box) {
+		return buffer.getFloat(HEADER_SIZE + box * RECORD_SIZE + 4);
+	}
+
+	/**
+	 * Return the name of a box, decoded from the string table
+	 * @param box
+	 * @return
+	 */
+	public String getName(int box) {
+		int offset = buffer.getInt(HEADER_SIZE + box * RECORD_SIZE + 8);
+		byte[] name = new byte[buffer.getInt(HEADER_SIZE + box * RECORD_SIZE + 12)];
+		ByteBuffer strings = buffer.duplicate();
+		strings.position((int) stringsStart + offset);
+		strings.get(name);
+		return new String(name, UTF8);
+	}
+
+	/* Private constants */
+	private static final int MAGIC = 0x42584447;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int RECORD_SIZE = 16;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/* Private instance variables */
+	private ByteBuffer buffer;
+	private int count;
+	private long stringsStart;
+
+}
@@ -0,0 +1,185 @@
+/*
+ * File: DiceMultisets.java
+ * ------------------------
+ * This class enumerates the dice as unordered multisets: the 252 
+ * different rolls of all dice and the 462 different sets of dice a
+ * player can keep before rolling again. The probability of reaching 
+ * each roll from each set of kept dice is held by KeepTransitions.
+ */
+
+public class DiceMultisets implements YahtzeeConstants {
+
+	/** The number of different rolls of all dice */
+	public static final int N_ROLLS = 252;
+
+	/** The number of different sets of kept dice (including none and all) */
+	public static final int N_KEEPS = 462;
+
+	/**
+	 * Return the multiset index of the given dice
+	 * @param dice
+	 * @return
+	 */
+	public static int rollIndexOf(int[] dice) {
+		int key = 0;
+		for (int i = 0; i < N_DICE; i++) {
+			key += POWERS[dice[i] - 1];
+		}
+		return KEY_TO_INDEX[key];
+	}
+
+	/**
+	 * Return the multiset index of the dice which are not rerolled
+	 * @param dice
+	 * @param rerollMask bit i set means die i is rolled again
+	 * @return
+	 */
+	public static int keepIndexOf(int[] dice, int rerollMask) {
+		int key = 0;
+		for (int i = 0; i < N_DICE; i++) {
+			if ((rerollMask & (1 << i)) == 0) key += POWERS[dice[i] - 1];
+		}
+		return KEY_TO_INDEX[key];
+	}
+
+	/**
+	 * Return the index of a roll in the YahtzeeScoreTable
+	 * @param roll multiset index of the roll
+	 * @return
+	 */
+	public static int scoreIndexOf(int roll) {
+		return SCORE_INDEX[roll];
+	}
+
+	/**
+	 * Return the probability of rolling the given dice with all dice
+	 * @param roll multiset index of the roll
+	 * @return
+	 */
+	public static double rollProbability(int roll) {
+		return ROLL_PROBABILITY[roll];
+	}
+
+	/**
+	 * Return the different sets of dice that can be kept from a roll
+	 * @param roll multiset index of the roll
+	 * @return multiset indexes of the kept dice
+	 */
+	public static int[] keepsOf(int roll) {
+		return KEEPS_OF_ROLL[roll];
+	}
+
+	/**
+	 * Return the multiset with one more die of the given face
+	 * @param index multiset index of less than N_DICE dice
+	 * @param face
+	 * @return
+	 */
+	public static int addDie(int index, int face) {
+		return KEY_TO_INDEX[KEYS[index] + POWERS[face - 1]];
+	}
+
+	/**
+	 * Return the number of dice in a multiset
+	 * @param index
+	 * @return
+	 */
+	public static int sizeOf(int index) {
+		return SIZE[index];
+	}
+
+	/* Enumerate all multisets of up to N_DICE dice, the complete rolls first */
+	private static void enumerate() {
+		int next = 0;
+		for (int size = N_DICE; size >= 0; size--) {
+			for (int key = 0; key < KEY_TO_INDEX.length; key++) {
+				if (sizeOfKey(key) == size) {
+					KEY_TO_INDEX[key] = next;
+					KEYS[next] = key;
+					SIZE[next] = size;
+					next++;
+				}
+			}
+		}
+	}
+
+	/* Compute scores, probabilities and keeps of all rolls */
+	private static void initTables() {
+		int[] dice = new int[N_DICE];
+		for (int roll = 0; roll < N_ROLLS; roll++) {
+			toDice(KEYS[roll], dice);
+			SCORE_INDEX[roll] = YahtzeeScoreTable.indexOf(dice);
+			ROLL_PROBABILITY[roll] = (double) permutations(KEYS[roll]) / YahtzeeScoreTable.N_ORDERED_ROLLS;
+
+			int[] keeps = new int[1 << N_DICE];
+			int nKeeps = 0;
+			for (int rerollMask = 0; rerollMask < (1 << N_DICE); rerollMask++) {
+				int keep = keepIndexOf(dice, rerollMask);
+				boolean found = false;
+				for (int i = 0; i < nKeeps; i++) {
+					if (keeps[i] == keep) found = true;
+				}
+				if (!found) keeps[nKeeps++] = keep;
+			}
+			KEEPS_OF_ROLL[roll] = new int[nKeeps];
+			System.arraycopy(keeps, 0, KEEPS_OF_ROLL[roll], 0, nKeeps);
+		}
+	}
+
+	/* Convert a multiset key into sorted dice */
+	private static void toDice(int key, int[] dice) {
+		int i = 0;
+		for (int face = 0; face < YahtzeeRules.N_FACES; face++) {
+			for (int count = key / POWERS[face] % (N_DICE + 1); count > 0; count--) {
+				dice[i++] = face + 1;
+			}
+		}
+	}
+
+	/* Return the number of dice in a multiset key */
+	private static int sizeOfKey(int key) {
+		int size = 0;
+		for (int face = 0; face < YahtzeeRules.N_FACES; face++) {
+			size += key / POWERS[face] % (N_DICE + 1);
+		}
+		return size;
+	}
+
+	/* Return the number of ordered rolls of a multiset key */
+	private static int permutations(int key) {
+		int result = factorial(sizeOfKey(key));
+		for (int face = 0; face < YahtzeeRules.N_FACES; face++) {
+			result /= factorial(key / POWERS[face] % (N_DICE + 1));
+		}
+		return result;
+	}
+
+	private static int factorial(int n) {
+		return n <= 1 ? 1 : n * factorial(n - 1);
+	}
+
+	/* Return the powers of N_DICE + 1 used to encode the count of each face */
+	private static int[] createPowers() {
+		int[] powers = new int[YahtzeeRules.N_FACES + 1];
+		powers[0] = 1;
+		for (int face = 1; face <= YahtzeeRules.N_FACES; face++) {
+			powers[face] = powers[face - 1] * (N_DICE + 1);
+		}
+		return powers;
+	}
+
+	/* Private static variables */
+	private static final int[] POWERS = createPowers();
+	private static final int[] KEY_TO_INDEX = new int[POWERS[YahtzeeRules.N_FACES]];
+	private static final int[] KEYS = new int[N_KEEPS];
+	private static final int[] SIZE = new int[N_KEEPS];
+	private static final int[] SCORE_INDEX = new int[N_ROLLS];
+	private static final double[] ROLL_PROBABILITY = new double[N_ROLLS];
+	private static final int[][] KEEPS_OF_ROLL = new int[N_ROLLS][];
+
+	static {
+		enumerate();
+		initTables();
+	}
+
+}
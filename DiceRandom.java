@@ -0,0 +1,23 @@
+/*
+ * File: DiceRandom.java
+ * ---------------------
+ * This interface is the source of randomness for rolling the dice. An
+ * instance belongs to one game or one thread at a time; split() hands
+ * out independent generators for other games or threads.
+ */
+
+public interface DiceRandom {
+
+	/**
+	 * Return 64 uniformly distributed random bits
+	 * @return
+	 */
+	public long nextLong();
+
+	/**
+	 * Return a new generator whose values are independent of this one
+	 * @return
+	 */
+	public DiceRandom split();
+
+}
@@ -0,0 +1,201 @@
+/*
+ * File: FaceLayer.java
+ * --------------------
+ * This class draws any number of faces and ovals as a single GObject.
+ * Each shape is kept as its position and the index of its style (shape,
+ * size and color) in primitive arrays; all shapes of a style share one
+ * sprite, rendered once from a GFace or GOval and copied to the canvas.
+ * A hundred thousand faces thus take a few bytes each instead of five
+ * graphical objects.
+ */
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+
+import acm.graphics.*;
+
+public class FaceLayer extends GObject {
+
+	/**
+	 * Return the index of a style, registering it on first use
+	 * @param face true for a GFace, false for a GOval
+	 * @param diameter
+	 * @param color
+	 * @return
+	 */
+	public int styleOf(boolean face, double diameter, Color color) {
+		for (int style = 0; style < styles.size(); style++) {
+			Style known = styles.get(style);
+			if (known.face == face && known.diameter == diameter && known.color.equals(color)) return style;
+		}
+		if (styles.size() == MAX_STYLES) throw new IllegalStateException("too many styles");
+		styles.add(new Style(face, diameter, color));
+		return styles.size() - 1;
+	}
+
+	/**
+	 * Add a shape at the end of the layer, so it is drawn above the others
+	 * @param x the left edge of the shape
+	 * @param y the top edge of the shape
+	 * @param style see styleOf
+	 */
+	public void add(double x, double y, int style) {
+		append((float) x, (float) y, (byte) style);
+		double diameter = styles.get(style).diameter;
+		repaintArea(x, y, x + diameter, y + diameter);
+	}
+
+	/**
+	 * Add shapes at the end of the layer with a single repaint of the 
+	 * area they cover
+	 * @param x the left edges of the shapes
+	 * @param y the top edges of the shapes
+	 * @param style the styles of the shapes, see styleOf
+	 * @param n the number of shapes
+	 */
+	public void addAll(float[] x, float[] y, byte[] style, int n) {
+		if (n == 0) return;
+		double areaMinX = Double.MAX_VALUE;
+		double areaMinY = Double.MAX_VALUE;
+		double areaMaxX = -Double.MAX_VALUE;
+		double areaMaxY = -Double.MAX_VALUE;
+		for (int i = 0; i < n; i++) {
+			append(x[i], y[i], style[i]);
+			double diameter = styles.get(style[i] & 0xff).diameter;
+			areaMinX = Math.min(areaMinX, x[i]);
+			areaMinY = Math.min(areaMinY, y[i]);
+			areaMaxX = Math.max(areaMaxX, x[i] + diameter);
+			areaMaxY = Math.max(areaMaxY, y[i] + diameter);
+		}
+		repaintArea(areaMinX, areaMinY, areaMaxX, areaMaxY);
+	}
+
+	/**
+	 * Remove all shapes
+	 */
+	public void clear() {
+		count = 0;
+		minX = minY = Double.MAX_VALUE;
+		maxX = maxY = -Double.MAX_VALUE;
+		repaint();
+	}
+
+	/**
+	 * Return the number of shapes
+	 * @return
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Return how many times the layer has been painted
+	 * @return
+	 */
+	public long getPaintCount() {
+		return paintCount;
+	}
+
+	public GRectangle getBounds() {
+		if (count == 0) return new GRectangle(getX(), getY(), 0, 0);
+		return new GRectangle(getX() + minX, getY() + minY, maxX - minX, maxY - minY);
+	}
+
+	public void paint(Graphics g) {
+		paintCount++;
+		Rectangle clip = g.getClipBounds();
+		int originX = (int) Math.round(getX()) - SPRITE_MARGIN;
+		int originY = (int) Math.round(getY()) - SPRITE_MARGIN;
+		for (int i = 0; i < count; i++) {
+			Style style = styles.get(styleIndexes[i] & 0xff);
+			int x = originX + Math.round(xs[i]);
+			int y = originY + Math.round(ys[i]);
+			BufferedImage sprite = style.sprite();
+			if (clip != null && (x >= clip.x + clip.width || y >= clip.y + clip.height
+					|| x + sprite.getWidth() <= clip.x || y + sprite.getHeight() <= clip.y)) {
+				continue;
+			}
+			g.drawImage(sprite, x, y, null);
+		}
+	}
+
+	private void append(float x, float y, byte style) {
+		if (count == xs.length) {
+			int capacity = 2 * xs.length;
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			styleIndexes = Arrays.copyOf(styleIndexes, capacity);
+		}
+		xs[count] = x;
+		ys[count] = y;
+		styleIndexes[count] = style;
+		count++;
+		minX = Math.min(minX, x);
+		minY = Math.min(minY, y);
+		maxX = Math.max(maxX, x + styles.get(style & 0xff).diameter);
+		maxY = Math.max(maxY, y + styles.get(style & 0xff).diameter);
+	}
+
+	/* Repaint only the given area of the layer if it is on a canvas, even if the canvas does not repaint itself */
+	private void repaintArea(double areaMinX, double areaMinY, double areaMaxX, double areaMaxY) {
+		if (!(getParent() instanceof GCanvas)) {
+			repaint();
+			return;
+		}
+		GCanvas canvas = (GCanvas) getParent();
+		int x = (int) Math.floor(getX() + areaMinX) - SPRITE_MARGIN;
+		int y = (int) Math.floor(getY() + areaMinY) - SPRITE_MARGIN;
+		canvas.repaint(x, y, (int) Math.ceil(areaMaxX - areaMinX) + 2 * SPRITE_MARGIN + 1, 
+				(int) Math.ceil(areaMaxY - areaMinY) + 2 * SPRITE_MARGIN + 1);
+	}
+
+	/* A shape, size and color shared by many shapes of the layer, with its sprite */
+	private static class Style {
+
+		public Style(boolean face, double diameter, Color color) {
+			this.face = face;
+			this.diameter = diameter;
+			this.color = color;
+		}
+
+		/* Return the sprite, rendering it from the graphical object on first use */
+		public BufferedImage sprite() {
+			if (sprite == null) {
+				int size = (int) Math.ceil(diameter) + 2 * SPRITE_MARGIN;
+				sprite = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+				Graphics2D g = sprite.createGraphics();
+				g.translate(SPRITE_MARGIN, SPRITE_MARGIN);
+				g.setColor(color);
+				GObject shape = face ? new GFace(diameter, diameter) : new GOval(diameter, diameter);
+				shape.setColor(color);
+				shape.paint(g);
+				g.dispose();
+			}
+			return sprite;
+		}
+
+		private boolean face;
+		private double diameter;
+		private Color color;
+		private BufferedImage sprite;
+	}
+
+	/* Private constants */
+	private static final int MAX_STYLES = 256;
+	private static final int SPRITE_MARGIN = 1;
+	private static final int INITIAL_CAPACITY = 1024;
+
+	/* Private instance variables */
+	private ArrayList<Style> styles = new ArrayList<Style>();
+	private float[] xs = new float[INITIAL_CAPACITY];
+	private float[] ys = new float[INITIAL_CAPACITY];
+	private byte[] styleIndexes = new byte[INITIAL_CAPACITY];
+	private int count;
+	private long paintCount;
+	private double minX = Double.MAX_VALUE;
+	private double minY = Double.MAX_VALUE;
+	private double maxX = -Double.MAX_VALUE;
+	private double maxY = -Double.MAX_VALUE;
+
+}
@@ -0,0 +1,246 @@
+/*
+ * File: GameJournal.java
+ * ----------------------
+ * This class records every roll and every scored category of the games
+ * played into a compact binary file, so that games can be audited and
+ * replayed later by JournalReplayer without the display.
+ *
+ * The file starts with MAGIC and VERSION. Every record starts with one
+ * byte holding the opcode in the upper 3 bits and a 5 bit argument:
+ *
+ *   START  columns     players (1 byte)
+ *   ROLL   reroll mask dice, 3 bits per die (2 bytes)
+ *   SCORE  category    player (1 byte), column (1 byte), score (2 bytes)
+ *   END    0
+ *
+ * so that a whole turn takes 14 bytes at most. Games with more than
+ * MAX_JOURNAL_PLAYERS players or more than MAX_JOURNAL_COLUMNS columns cannot be 
+ * recorded.
+ */
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+import acm.util.*;
+
+public class GameJournal implements YahtzeeConstants {
+
+	/**
+	 * Open a journal, appending to the file if it exists. A record torn 
+	 * off by a crash at the end of the file is cut off first, so that 
+	 * the games appended after it can be replayed.
+	 * @param file
+	 * @return
+	 * @throws IOException if the file is not a journal or has a corrupt record
+	 */
+	public static GameJournal open(File file) throws IOException {
+		if (file.length() > 0) {
+			checkHeader(file);
+			truncateTornRecord(file);
+		}
+		FileChannel channel = new FileOutputStream(file, true).getChannel();
+		GameJournal journal = new GameJournal(channel);
+		if (channel.size() == 0) {
+			journal.buffer.putInt(MAGIC).putInt(VERSION);
+		}
+		return journal;
+	}
+
+	/* 
+	 * Cut an incomplete record off the end of the file. An unknown record 
+	 * is corruption rather than a torn append, so the file is left as it 
+	 * is and open fails.
+	 */
+	private static void truncateTornRecord(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			FileChannel channel = raf.getChannel();
+			long length = channel.size();
+			long valid = HEADER_SIZE;
+			ByteBuffer records = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			/* scan in chunks, a record may span two chunks */
+			while (valid < length) {
+				records.clear();
+				records.limit((int) Math.min(records.capacity(), length - valid));
+				channel.read(records, valid);
+				records.flip();
+				int position = 0;
+				while (position < records.limit()) {
+					int size = recordSize((records.get(position) & 0xff) >>> OPCODE_SHIFT);
+					if (size == 0) {
+						throw new IOException(file + " has an unknown record at offset " + (valid + position));
+					}
+					if (position + size > records.limit()) break;
+					position += size;
+				}
+				/* a chunk holds any record that is complete, so this one ends the file */
+				if (position == 0) break;
+				valid += position;
+			}
+			if (valid < length) channel.truncate(valid);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/* Return the size of a record with the given opcode, 0 if it is unknown */
+	static int recordSize(int opcode) {
+		switch (opcode) {
+		case START: return START_SIZE;
+		case ROLL: return ROLL_SIZE;
+		case SCORE: return SCORE_SIZE;
+		case END: return END_SIZE;
+		default: return 0;
+		}
+	}
+
+	/* Refuse to append to a file that is not a journal of this version */
+	private static void checkHeader(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+		try {
+			if (file.length() < HEADER_SIZE || in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException(file + " is not a game journal of version " + VERSION);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private GameJournal(FileChannel channel) {
+		this.channel = channel;
+	}
+
+	/**
+	 * Record the start of a game
+	 * @param nPlayers
+	 * @param nColumns the number of score columns per player
+	 */
+	public synchronized void startGame(int nPlayers, int nColumns) {
+		if (nPlayers < 1 || nPlayers > MAX_JOURNAL_PLAYERS || nColumns < 1 || nColumns > MAX_JOURNAL_COLUMNS) {
+			throw new IllegalArgumentException(nPlayers + " players with " + nColumns 
+					+ " columns cannot be journaled");
+		}
+		reserve(START_SIZE);
+		buffer.put((byte) (START << OPCODE_SHIFT | nColumns)).put((byte) nPlayers);
+	}
+
+	/**
+	 * Record a roll
+	 * @param rerollMask the dice rolled, bit i set means die i
+	 * @param dice the dice after the roll
+	 */
+	public synchronized void roll(int rerollMask, int[] dice) {
+		reserve(ROLL_SIZE);
+		buffer.put((byte) (ROLL << OPCODE_SHIFT | rerollMask)).putShort((short) packDice(dice));
+	}
+
+	/**
+	 * Record the score written into a category
+	 * @param player
+	 * @param column the score column of the player, 0 for standard Yahtzee
+	 * @param category
+	 * @param score the score of the category
+	 */
+	public synchronized void score(int player, int column, int category, int score) {
+		if (player < 0 || player >= MAX_JOURNAL_PLAYERS || column < 0 || column >= MAX_JOURNAL_COLUMNS) {
+			throw new IllegalArgumentException("player " + player + " column " + column 
+					+ " cannot be journaled");
+		}
+		reserve(SCORE_SIZE);
+		buffer.put((byte) (SCORE << OPCODE_SHIFT | category))
+				.put((byte) player).put((byte) column)
+				.putShort((short) score);
+	}
+
+	/**
+	 * Record the end of a game and write the journal to the file
+	 */
+	public synchronized void endGame() {
+		reserve(END_SIZE);
+		buffer.put((byte) (END << OPCODE_SHIFT));
+		flush();
+	}
+
+	/**
+	 * Write the buffered records to the file
+	 */
+	public synchronized void flush() {
+		buffer.flip();
+		try {
+			while (buffer.hasRemaining()) channel.write(buffer);
+		} catch (IOException ex) {
+			throw new ErrorException(ex);
+		} finally {
+			buffer.clear();
+		}
+	}
+
+	public synchronized void close() {
+		flush();
+		try {
+			channel.close();
+		} catch (IOException ex) {
+			throw new ErrorException(ex);
+		}
+	}
+
+	/* Make room for a record in the buffer */
+	private void reserve(int size) {
+		if (buffer.remaining() < size) flush();
+	}
+
+	/**
+	 * Pack the dice into 3 bits each, the first die in the lowest bits
+	 * @param dice
+	 * @return
+	 */
+	public static int packDice(int[] dice) {
+		int packed = 0;
+		for (int i = N_DICE - 1; i >= 0; i--) {
+			packed = (packed << DIE_BITS) | dice[i];
+		}
+		return packed;
+	}
+
+	/**
+	 * Unpack dice packed by packDice
+	 * @param packed
+	 * @param dice filled with the dice
+	 */
+	public static void unpackDice(int packed, int[] dice) {
+		for (int i = 0; i < N_DICE; i++) {
+			dice[i] = packed & DIE_MASK;
+			packed >>>= DIE_BITS;
+		}
+	}
+
+	/* Package constants, shared with JournalReplayer */
+	static final int MAGIC = 0x594a4e4c;
+	static final int VERSION = 2;
+	static final int HEADER_SIZE = 8;
+	static final int OPCODE_SHIFT = 5;
+	static final int ARGUMENT_MASK = (1 << OPCODE_SHIFT) - 1;
+	static final int START = 0;
+	static final int ROLL = 1;
+	static final int SCORE = 2;
+	static final int END = 3;
+	static final int START_SIZE = 2;
+	static final int ROLL_SIZE = 3;
+	static final int SCORE_SIZE = 5;
+	static final int END_SIZE = 1;
+
+	/** The most players and columns per player a journal can record */
+	public static final int MAX_JOURNAL_PLAYERS = 255;
+	public static final int MAX_JOURNAL_COLUMNS = (1 << OPCODE_SHIFT) - 1;
+
+	/* Private constants */
+	private static final int DIE_BITS = 3;
+	private static final int DIE_MASK = (1 << DIE_BITS) - 1;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/* Private instance variables */
+	private FileChannel channel;
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+}
@@ -0,0 +1,122 @@
+/*
+ * File: GraphicalView.java
+ * ------------------------
+ * This class shows a game on a YahtzeeDisplay. Scorecard updates are
+ * collected per cell and shown by flushScorecard in one pass on the 
+ * event thread with a single repaint; cells whose score has not 
+ * changed are skipped.
+ */
+
+import java.lang.reflect.*;
+import java.util.*;
+
+import javax.swing.*;
+
+import acm.graphics.*;
+import acm.util.*;
+
+public class GraphicalView implements YahtzeeView, YahtzeeConstants {
+
+	/**
+	 * Creates the display on a canvas
+	 * @param canvas
+	 * @param playerNames one column of the scorecard per name
+	 */
+	public GraphicalView(GCanvas canvas, String[] playerNames) {
+		this.canvas = canvas;
+		display = new YahtzeeDisplay(canvas, playerNames);
+		int nCells = N_CATEGORIES * playerNames.length;
+		shown = new int[nCells];
+		pending = new int[nCells];
+		dirtyCells = new int[nCells];
+		Arrays.fill(shown, NOT_SHOWN);
+		Arrays.fill(pending, NOT_SHOWN);
+	}
+
+	public void waitForPlayerToClickRoll(int player) {
+		display.waitForPlayerToClickRoll(player);
+	}
+
+	public void displayDice(int[] dice) {
+		display.displayDice(dice);
+	}
+
+	public void waitForPlayerToSelectDice() {
+		display.waitForPlayerToSelectDice();
+	}
+
+	public boolean isDieSelected(int index) {
+		return display.isDieSelected(index);
+	}
+
+	public int waitForPlayerToSelectCategory() {
+		return display.waitForPlayerToSelectCategory();
+	}
+
+	public void updateScorecard(int category, int player, int score) {
+		int cell = player * N_CATEGORIES + category;
+		if (pending[cell] == NOT_SHOWN) dirtyCells[nDirty++] = cell;
+		pending[cell] = score;
+	}
+
+	public void flushScorecard() {
+		if (nDirty == 0) return;
+		onEventThread(new Runnable() {
+			public void run() {
+				showPending();
+			}
+		});
+	}
+
+	public void printMessage(String message) {
+		display.printMessage(message);
+	}
+
+	/* Show the pending scores that differ from the ones shown, then repaint once */
+	private void showPending() {
+		boolean autoRepaint = canvas.getAutoRepaintFlag();
+		canvas.setAutoRepaintFlag(false);
+		try {
+			for (int i = 0; i < nDirty; i++) {
+				int cell = dirtyCells[i];
+				if (pending[cell] != shown[cell]) {
+					display.updateScorecard(cell % N_CATEGORIES, cell / N_CATEGORIES, pending[cell]);
+					shown[cell] = pending[cell];
+				}
+				pending[cell] = NOT_SHOWN;
+			}
+			nDirty = 0;
+		} finally {
+			canvas.setAutoRepaintFlag(autoRepaint);
+		}
+		canvas.repaint();
+	}
+
+	/* Run on the event thread and wait for it, the game thread must not touch the cells meanwhile */
+	private static void onEventThread(Runnable runnable) {
+		if (SwingUtilities.isEventDispatchThread()) {
+			runnable.run();
+			return;
+		}
+		try {
+			SwingUtilities.invokeAndWait(runnable);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new ErrorException(ex);
+		} catch (InvocationTargetException ex) {
+			throw new ErrorException(ex);
+		}
+	}
+
+	/* Private constants */
+	private static final int NOT_SHOWN = Integer.MIN_VALUE;
+
+	/* Private instance variables */
+	private GCanvas canvas;
+	private YahtzeeDisplay display;
+	private int[] shown;
+	private int[] pending;
+	private int[] dirtyCells;
+	private int nDirty;
+
+}
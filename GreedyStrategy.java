@@ -0,0 +1,46 @@
+/*
+ * File: GreedyStrategy.java
+ * -------------------------
+ * A simple strategy which keeps the most frequent face and scores the
+ * dice in the category with the highest immediate score.
+ */
+
+public class GreedyStrategy implements YahtzeeStrategy, YahtzeeConstants {
+
+	public int chooseReroll(int[] dice, int roll, long state) {
+		int bestFace = 0;
+		int bestCount = 0;
+		for (int face = YahtzeeRules.N_FACES; face > 0; face--) {
+			int count = 0;
+			for (int i = 0; i < N_DICE; i++) {
+				if (dice[i] == face) count++;
+			}
+			if (count > bestCount) {
+				bestFace = face;
+				bestCount = count;
+			}
+		}
+		int rerollMask = 0;
+		for (int i = 0; i < N_DICE; i++) {
+			if (dice[i] != bestFace) rerollMask |= 1 << i;
+		}
+		return rerollMask;
+	}
+
+	public int chooseCategory(int[] dice, long state) {
+		int rollIndex = YahtzeeScoreTable.indexOf(dice);
+		int bestCategory = -1;
+		int bestScore = -1;
+		for (int category = ONES; category <= CHANCE; category++) {
+			if (category == UPPER_SCORE || category == UPPER_BONUS) continue;
+			if (YahtzeeState.isUsed(state, category)) continue;
+			int score = YahtzeeState.categoryScore(state, rollIndex, category, 1);
+			if (score > bestScore) {
+				bestCategory = category;
+				bestScore = score;
+			}
+		}
+		return bestCategory;
+	}
+
+}
@@ -0,0 +1,235 @@
+/*
+ * File: GridIndex.java
+ * --------------------
+ * This class finds the graphical objects at a point or in a rectangle
+ * without looking at every object on the canvas. The plane is divided 
+ * into square cells and each object is listed in the cells its bounds 
+ * cover, so a query only looks at the objects of a few cells. Objects
+ * must be updated after they have been moved.
+ *
+ * The index also keeps the stacking order of its objects: an object
+ * added or brought to the front later lies above the earlier ones.
+ */
+
+import java.util.*;
+
+import acm.graphics.*;
+
+public class GridIndex {
+
+	/**
+	 * Creates an empty index
+	 * @param cellSize the side of a cell, about the size of typical objects
+	 */
+	public GridIndex(double cellSize) {
+		this.cellSize = cellSize;
+	}
+
+	/**
+	 * Add an object on top of the others, or update it if it is in the index
+	 * @param obj
+	 */
+	public void add(GObject obj) {
+		Entry entry = entries.get(obj);
+		if (entry != null) {
+			update(obj);
+			return;
+		}
+		entry = new Entry(obj, nextOrder++);
+		setCells(entry, obj.getBounds());
+		entries.put(obj, entry);
+		addToCells(entry);
+	}
+
+	/**
+	 * Remove an object, nothing happens if it is not in the index
+	 * @param obj
+	 */
+	public void remove(GObject obj) {
+		Entry entry = entries.remove(obj);
+		if (entry == null) return;
+		removeFromCells(entry);
+	}
+
+	/**
+	 * Move an object to the cells of its current bounds
+	 * @param obj
+	 */
+	public void update(GObject obj) {
+		Entry entry = entries.get(obj);
+		if (entry == null) return;
+		GRectangle bounds = obj.getBounds();
+		if (cellOf(bounds.getX()) == entry.minX && cellOf(bounds.getY()) == entry.minY
+				&& cellOf(bounds.getX() + bounds.getWidth()) == entry.maxX 
+				&& cellOf(bounds.getY() + bounds.getHeight()) == entry.maxY) {
+			return;
+		}
+		removeFromCells(entry);
+		setCells(entry, bounds);
+		addToCells(entry);
+	}
+
+	/**
+	 * Put an object above all others in the stacking order of the index
+	 * @param obj
+	 */
+	public void bringToFront(GObject obj) {
+		Entry entry = entries.get(obj);
+		if (entry != null) entry.order = nextOrder++;
+	}
+
+	/**
+	 * Return the topmost object containing a point, null if there is none
+	 * @param x
+	 * @param y
+	 * @return
+	 */
+	public GObject getElementAt(double x, double y) {
+		ArrayList<Entry> cell = cell(cellOf(x), cellOf(y), false);
+		if (cell == null) return null;
+		Entry top = null;
+		for (int i = 0; i < cell.size(); i++) {
+			Entry entry = cell.get(i);
+			if ((top == null || entry.order > top.order) && entry.obj.contains(x, y)) top = entry;
+		}
+		return top == null ? null : top.obj;
+	}
+
+	/**
+	 * Return the objects whose bounds intersect a rectangle, from bottom to top
+	 * @param area
+	 * @return
+	 */
+	public List<GObject> getElementsIn(GRectangle area) {
+		int minX = cellOf(area.getX());
+		int minY = cellOf(area.getY());
+		int maxX = cellOf(area.getX() + area.getWidth());
+		int maxY = cellOf(area.getY() + area.getHeight());
+		ArrayList<Entry> found = new ArrayList<Entry>();
+		for (int cx = minX; cx <= maxX; cx++) {
+			for (int cy = minY; cy <= maxY; cy++) {
+				ArrayList<Entry> cell = cell(cx, cy, false);
+				if (cell == null) continue;
+				for (int i = 0; i < cell.size(); i++) {
+					Entry entry = cell.get(i);
+					/* report an object only in the first cell it shares with the area */
+					if (Math.max(entry.minX, minX) == cx && Math.max(entry.minY, minY) == cy
+							&& entry.obj.getBounds().intersects(area)) {
+						found.add(entry);
+					}
+				}
+			}
+		}
+		Collections.sort(found, BY_ORDER);
+		ArrayList<GObject> objects = new ArrayList<GObject>(found.size());
+		for (Entry entry : found) objects.add(entry.obj);
+		return objects;
+	}
+
+	/**
+	 * Return the number of objects in the index
+	 * @return
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Remove all objects
+	 */
+	public void clear() {
+		entries.clear();
+		cells.clear();
+	}
+
+	private void setCells(Entry entry, GRectangle bounds) {
+		entry.minX = cellOf(bounds.getX());
+		entry.minY = cellOf(bounds.getY());
+		entry.maxX = cellOf(bounds.getX() + bounds.getWidth());
+		entry.maxY = cellOf(bounds.getY() + bounds.getHeight());
+	}
+
+	private void addToCells(Entry entry) {
+		int nCells = (entry.maxX - entry.minX + 1) * (entry.maxY - entry.minY + 1);
+		if (entry.slots == null || entry.slots.length < nCells) entry.slots = new int[nCells];
+		for (int cx = entry.minX; cx <= entry.maxX; cx++) {
+			for (int cy = entry.minY; cy <= entry.maxY; cy++) {
+				ArrayList<Entry> cell = cell(cx, cy, true);
+				entry.slots[entry.slotIndex(cx, cy)] = cell.size();
+				cell.add(entry);
+			}
+		}
+	}
+
+	/* Takes constant time per cell, even if many objects are stacked in one cell */
+	private void removeFromCells(Entry entry) {
+		for (int cx = entry.minX; cx <= entry.maxX; cx++) {
+			for (int cy = entry.minY; cy <= entry.maxY; cy++) {
+				ArrayList<Entry> cell = cell(cx, cy, false);
+				int i = entry.slots[entry.slotIndex(cx, cy)];
+				/* order within a cell does not matter, so fill the gap with the last entry */
+				Entry last = cell.remove(cell.size() - 1);
+				if (last != entry) {
+					cell.set(i, last);
+					last.slots[last.slotIndex(cx, cy)] = i;
+				}
+				if (cell.isEmpty()) cells.remove(key(cx, cy));
+			}
+		}
+	}
+
+	private ArrayList<Entry> cell(int cx, int cy, boolean create) {
+		Long key = key(cx, cy);
+		ArrayList<Entry> cell = cells.get(key);
+		if (cell == null && create) {
+			cell = new ArrayList<Entry>(INITIAL_CELL_CAPACITY);
+			cells.put(key, cell);
+		}
+		return cell;
+	}
+
+	private int cellOf(double coordinate) {
+		return (int) Math.floor(coordinate / cellSize);
+	}
+
+	private static Long key(int cx, int cy) {
+		return ((long) cx << 32) | (cy & 0xffffffffL);
+	}
+
+	/* The cells, the positions within them and the stacking order of an object */
+	private static class Entry {
+
+		public Entry(GObject obj, long order) {
+			this.obj = obj;
+			this.order = order;
+		}
+
+		/* Return where the position in a cell is kept in slots */
+		public int slotIndex(int cx, int cy) {
+			return (cx - minX) * (maxY - minY + 1) + (cy - minY);
+		}
+
+		private GObject obj;
+		private long order;
+		private int minX;
+		private int minY;
+		private int maxX;
+		private int maxY;
+		private int[] slots;
+	}
+
+	/* Private constants */
+	private static final int INITIAL_CELL_CAPACITY = 4;
+	private static final Comparator<Entry> BY_ORDER = new Comparator<Entry>() {
+		public int compare(Entry a, Entry b) {
+			return Long.compare(a.order, b.order);
+		}
+	};
+
+	/* Private instance variables */
+	private double cellSize;
+	private HashMap<GObject, Entry> entries = new HashMap<GObject, Entry>();
+	private HashMap<Long, ArrayList<Entry>> cells = new HashMap<Long, ArrayList<Entry>>();
+	private long nextOrder;
+
+}
@@ -0,0 +1,99 @@
+/*
+ * File: HeadlessView.java
+ * -----------------------
+ * This class plays the part of the display without any window: the 
+ * answers of the players come from a strategy, and the scorecard is 
+ * kept as the packed states the strategy needs, rebuilt from the 
+ * scores the game shows. It needs neither AWT nor the acm libraries,
+ * so a game on it starts at once and many run side by side.
+ */
+
+import java.util.*;
+
+public class HeadlessView implements YahtzeeView, YahtzeeConstants {
+
+	/**
+	 * Creates a view whose players all follow the same strategy
+	 * @param strategy
+	 * @param nPlayers
+	 */
+	public HeadlessView(YahtzeeStrategy strategy, int nPlayers) {
+		this.strategy = strategy;
+		playerStates = new long[nPlayers];
+		Arrays.fill(playerStates, YahtzeeState.INITIAL);
+	}
+
+	public void waitForPlayerToClickRoll(int player) {
+		this.player = player;
+		roll = 0;
+		rerollMask = 0;
+	}
+
+	public void displayDice(int[] dice) {
+		System.arraycopy(dice, 0, this.dice, 0, N_DICE);
+		roll++;
+	}
+
+	public void waitForPlayerToSelectDice() {
+		rerollMask = strategy.chooseReroll(dice, roll, playerStates[player]);
+	}
+
+	public boolean isDieSelected(int index) {
+		return (rerollMask & (1 << index)) != 0;
+	}
+
+	public int waitForPlayerToSelectCategory() {
+		return strategy.chooseCategory(dice, playerStates[player]);
+	}
+
+	public void updateScorecard(int category, int player, int score) {
+		if (YahtzeeEngine.isScoringCategory(category)) {
+			playerStates[player] = YahtzeeState.add(playerStates[player], category, score);
+		} else if (category == TOTAL) {
+			totals++;
+		}
+	}
+
+	public void flushScorecard() {
+	}
+
+	public void printMessage(String message) {
+		lastMessage = message;
+	}
+
+	/**
+	 * Return the state of a player as shown on the scorecard, see YahtzeeState
+	 * @param player
+	 * @return
+	 */
+	public long getPlayerState(int player) {
+		return playerStates[player];
+	}
+
+	/**
+	 * Return the last message shown
+	 * @return
+	 */
+	public String getLastMessage() {
+		return lastMessage;
+	}
+
+	/**
+	 * Return how many times a total has been shown, once per turn
+	 * @return
+	 */
+	public int getTotalCount() {
+		return totals;
+	}
+
+	/* Private instance variables */
+	private YahtzeeStrategy strategy;
+	private long[] playerStates;
+	private int[] dice = new int[N_DICE];
+	private int player;
+	private int roll;
+	private int rerollMask;
+	private int totals;
+	private String lastMessage = "";
+
+}
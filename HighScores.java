@@ -0,0 +1,418 @@
+/*
+ * File: HighScores.java
+ * ---------------------
+ * This class keeps the list of high scores in a Leaderboard and stores it
+ * in two files: a text snapshot of the list (the high score file) and
+ * a binary log next to it to which every new high score is appended.
+ * Recording a score is a single append, and the log is folded into a
+ * new snapshot in the background once it has grown.
+ *
+ * Snapshot: an optional header line "#log=<epoch>:<offset>" naming the
+ * part of the log already contained in it, then one "score=name" line
+ * per entry. It is replaced by an atomic rename.
+ *
+ * Log: a header of MAGIC and an epoch, then records of the payload
+ * length, the CRC32 of the payload and the payload (score and UTF-8
+ * name). A torn record at the end of the log is ignored.
+ */
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+import acm.util.*;
+
+public class HighScores {
+
+	/**
+	 * Creates an empty high score list
+	 * @param fileName the file the high scores are stored in
+	 * @param capacity the maximum number of high scores kept
+	 */
+	public HighScores(String fileName, int capacity) {
+		this.fileName = fileName;
+		this.capacity = capacity;
+		leaderboard = new Leaderboard(capacity);
+	}
+
+	/**
+	 * load high scores from the snapshot and the log
+	 */
+	public void load() {
+		synchronized (HighScores.class) {
+			FileLock lock = lock();
+			try {
+				leaderboard.clear();
+				readFiles();
+			} catch (IOException ex) {
+				throw new ErrorException(ex);
+			} finally {
+				release(lock);
+			}
+		}
+		if (logFile().length() > COMPACT_THRESHOLD) compactLater();
+	}
+
+	/**
+	 * Record the score of a finished game: if it is a new high score it is
+	 * added to the list and appended to the log
+	 * @param name
+	 * @param score
+	 * @return whether the score is a new high score
+	 */
+	public boolean record(String name, int score) {
+		if (!newHighScore(name, score)) return false;
+		long start = System.nanoTime();
+		long logLength;
+		synchronized (HighScores.class) {
+			FileLock lock = lock();
+			try {
+				logLength = append(name, score);
+			} catch (IOException ex) {
+				throw new ErrorException(ex);
+			} finally {
+				release(lock);
+			}
+		}
+		if (Metrics.ENABLED) RECORD_TIME.record(Metrics.micros(start));
+		if (logLength > COMPACT_THRESHOLD) compactLater();
+		return true;
+	}
+
+	/**
+	 * Write the list of this object as the new snapshot and start a new,
+	 * empty log, replacing whatever has been stored before
+	 */
+	public void save() {
+		long start = System.nanoTime();
+		synchronized (HighScores.class) {
+			FileLock lock = lock();
+			try {
+				writeSnapshot();
+				startLog(logEpoch + 1);
+			} catch (IOException ex) {
+				throw new ErrorException(ex);
+			} finally {
+				release(lock);
+			}
+		}
+		if (Metrics.ENABLED) SAVE_TIME.record(Metrics.micros(start));
+	}
+
+	/**
+	 * Write a new snapshot containing the log and start a new, empty log
+	 */
+	public void compact() {
+		long start = System.nanoTime();
+		synchronized (HighScores.class) {
+			FileLock lock = lock();
+			try {
+				/* work on a copy, the list of this object may be in use by the game */
+				HighScores merged = new HighScores(fileName, capacity);
+				merged.readFiles();
+				merged.writeSnapshot();
+				merged.startLog(merged.logEpoch + 1);
+				logEpoch = merged.logEpoch;
+				logLength = merged.logLength;
+			} catch (IOException ex) {
+				throw new ErrorException(ex);
+			} finally {
+				release(lock);
+			}
+		}
+		if (Metrics.ENABLED) COMPACT_TIME.record(Metrics.micros(start));
+	}
+
+	/**
+	 * Compact the files on a background thread
+	 */
+	public void compactLater() {
+		COMPACTOR.execute(new Runnable() {
+			public void run() {
+				compact();
+			}
+		});
+	}
+
+	/**
+	 * check whether the score is a new high score and add it to the list
+	 * @param name
+	 * @param score
+	 * @return whether the score has been added
+	 */
+	public boolean newHighScore(String name, int score) {
+		return leaderboard.offer(name, score);
+	}
+
+	/**
+	 * Return the number of high scores in the list
+	 * @return
+	 */
+	public int size() {
+		return leaderboard.snapshot().size();
+	}
+
+	/**
+	 * Return the high scores as text to show to the players
+	 * @return
+	 */
+	public String format() {
+		String text = "Highscores:\n";
+		Leaderboard.Snapshot snapshot = leaderboard.snapshot();
+
+		if (snapshot.size() == 0) {
+			text += "none available yet";
+		} else {
+			for (int i = 0; i < snapshot.size(); i++) {
+				int value = snapshot.getValue(i);
+				if (value / 100 == 0) text += "  ";
+				if (value / 10 == 0) text += "  ";
+				text += value + " " + snapshot.getName(i) + "\n";
+			}
+		}
+		return text;
+	}
+
+	/**
+	 * Return a consistent view of the high scores, which is not changed by
+	 * scores recorded later
+	 * @return
+	 */
+	public Leaderboard.Snapshot snapshot() {
+		return leaderboard.snapshot();
+	}
+
+	/* Read the snapshot and replay the part of the log not contained in it */
+	private void readFiles() throws IOException {
+		long snapshotEpoch = -1;
+		long snapshotOffset = 0;
+		File snapshot = new File(fileName);
+		if (snapshot.exists()) {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					new FileInputStream(snapshot), UTF8));
+			String[] names = new String[INITIAL_ENTRIES];
+			int[] values = new int[INITIAL_ENTRIES];
+			int count = 0;
+			try {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					int separator = line.indexOf('=');
+					if (line.startsWith(LOG_HEADER)) {
+						int colon = line.indexOf(':');
+						snapshotEpoch = Long.parseLong(line.substring(LOG_HEADER.length(), colon));
+						snapshotOffset = Long.parseLong(line.substring(colon + 1));
+					} else if (separator > 0) {
+						if (count == names.length) {
+							names = Arrays.copyOf(names, 2 * count);
+							values = Arrays.copyOf(values, 2 * count);
+						}
+						values[count] = Integer.parseInt(line.substring(0, separator).trim());
+						names[count] = line.substring(separator + 1);
+						count++;
+					}
+				}
+			} finally {
+				reader.close();
+			}
+			leaderboard.replaceAll(names, values, count);
+		}
+
+		File log = logFile();
+		if (!log.exists()) {
+			startLog(snapshotEpoch + 1);
+			return;
+		}
+		FileChannel channel = new RandomAccessFile(log, "r").getChannel();
+		try {
+			ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0);
+			buffer.flip();
+			if (buffer.remaining() < LOG_HEADER_SIZE || buffer.getInt() != MAGIC) {
+				throw new IOException(log + " is not a high score log");
+			}
+			logEpoch = buffer.getLong();
+			if (logEpoch == snapshotEpoch) {
+				buffer.position((int) Math.min(Math.max(snapshotOffset, LOG_HEADER_SIZE), buffer.limit()));
+			}
+			logLength = replay(buffer);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/* Add all complete records of the log to the list, return where the valid log ends */
+	private long replay(ByteBuffer buffer) {
+		CRC32 crc = new CRC32();
+		while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+			int start = buffer.position();
+			int length = buffer.getInt();
+			int checksum = buffer.getInt();
+			if (length < 4 || length > buffer.remaining()) {
+				buffer.position(start);
+				break;
+			}
+			crc.reset();
+			crc.update(buffer.array(), buffer.position(), length);
+			if ((int) crc.getValue() != checksum) {
+				buffer.position(start);
+				break;
+			}
+			int score = buffer.getInt();
+			String name = new String(buffer.array(), buffer.position(), length - 4, UTF8);
+			buffer.position(buffer.position() + length - 4);
+			newHighScore(name, score);
+		}
+		return buffer.position();
+	}
+
+	/* Append a record to the log and return the new length of the log */
+	private long append(String name, int score) throws IOException {
+		File log = logFile();
+		if (!log.exists()) startLog(logEpoch + 1);
+		byte[] bytes = name.getBytes(UTF8);
+		ByteBuffer payload = ByteBuffer.allocate(4 + bytes.length);
+		payload.putInt(score).put(bytes);
+		CRC32 crc = new CRC32();
+		crc.update(payload.array());
+		ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.capacity());
+		record.putInt(payload.capacity()).putInt((int) crc.getValue()).put(payload.array()).flip();
+
+		RandomAccessFile file = new RandomAccessFile(log, "rw");
+		try {
+			FileChannel channel = file.getChannel();
+			/* 
+			 * if the log is not as we left it, check for a torn record left by 
+			 * a crash and cut it off, so the new record stays readable
+			 */
+			long end = channel.size();
+			if (end != logLength) {
+				long valid = validLength(channel);
+				if (valid < end) {
+					channel.truncate(valid);
+					end = valid;
+				}
+			}
+			channel.position(end);
+			while (record.hasRemaining()) channel.write(record);
+			channel.force(false);
+			logLength = channel.size();
+			return logLength;
+		} finally {
+			file.close();
+		}
+	}
+
+	/* Return the length of the complete records of the log */
+	private long validLength(FileChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+		channel.read(buffer, 0);
+		buffer.flip();
+		buffer.position(LOG_HEADER_SIZE);
+		HighScores scratch = new HighScores(fileName, capacity);
+		return scratch.replay(buffer);
+	}
+
+	/* Replace the log by an empty one with the given epoch */
+	private void startLog(long epoch) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+		header.putInt(MAGIC).putLong(epoch).flip();
+		File temp = new File(logFile().getPath() + ".tmp");
+		FileOutputStream out = new FileOutputStream(temp);
+		try {
+			FileChannel channel = out.getChannel();
+			while (header.hasRemaining()) channel.write(header);
+			channel.force(true);
+		} finally {
+			out.close();
+		}
+		replace(temp, logFile());
+		logEpoch = epoch;
+		logLength = LOG_HEADER_SIZE;
+	}
+
+	/* Write the list as the new snapshot, covering the log up to its current length */
+	private void writeSnapshot() throws IOException {
+		File temp = new File(fileName + ".tmp");
+		FileOutputStream out = new FileOutputStream(temp);
+		try {
+			Writer writer = new BufferedWriter(new OutputStreamWriter(out, UTF8));
+			writer.write(LOG_HEADER + logEpoch + ":" + logLength + "\n");
+			Leaderboard.Snapshot snapshot = leaderboard.snapshot();
+			for (int i = 0; i < snapshot.size(); i++) {
+				writer.write(snapshot.getValue(i) + "=" + snapshot.getName(i) + "\n");
+			}
+			writer.flush();
+			out.getFD().sync();
+		} finally {
+			out.close();
+		}
+		replace(temp, new File(fileName));
+	}
+
+	/* Atomically replace a file by another */
+	private static void replace(File source, File target) throws IOException {
+		try {
+			Files.move(source.toPath(), target.toPath(),
+					StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException ex) {
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/* Lock the files against other processes, threads are excluded by the caller */
+	private FileLock lock() {
+		try {
+			FileChannel channel = new RandomAccessFile(fileName + ".lock", "rw").getChannel();
+			return channel.lock();
+		} catch (IOException ex) {
+			throw new ErrorException(ex);
+		}
+	}
+
+	private void release(FileLock lock) {
+		try {
+			lock.release();
+			lock.channel().close();
+		} catch (IOException ex) {
+			// closing the channel releases the lock anyway
+		}
+	}
+
+	private File logFile() {
+		return new File(fileName + ".log");
+	}
+
+	/* Private constants */
+	private static final int MAGIC = 0x48534c47;
+	private static final int LOG_HEADER_SIZE = 12;
+	private static final int RECORD_HEADER_SIZE = 8;
+	private static final long COMPACT_THRESHOLD = 64 * 1024;
+	private static final int INITIAL_ENTRIES = 16;
+	private static final String LOG_HEADER = "#log=";
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final Histogram RECORD_TIME = Metrics.histogram("highScores.record.us");
+	private static final Histogram SAVE_TIME = Metrics.histogram("highScores.save.us");
+	private static final Histogram COMPACT_TIME = Metrics.histogram("highScores.compact.us");
+
+	/* Runs background compactions, one at a time */
+	private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "HighScores compaction");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/* Private instance variables */
+	private String fileName;
+	private int capacity;
+	private Leaderboard leaderboard;
+	private long logEpoch;
+	private long logLength;
+
+}
@@ -0,0 +1,91 @@
+/*
+ * File: Histogram.java
+ * --------------------
+ * This class counts non-negative values, e.g. latencies in microseconds,
+ * in buckets of logarithmic width: values below 16 get a bucket each, 
+ * above that every power of two is split into 16 buckets, so that a
+ * percentile is off by less than 1/16. Recording is lock-free and does
+ * not allocate, so it can be used on hot paths by many threads.
+ */
+
+import java.util.concurrent.atomic.*;
+
+public class Histogram {
+
+	/**
+	 * Count a value, negative values are counted as 0
+	 * @param value
+	 */
+	public void record(long value) {
+		if (value < 0) value = 0;
+		counts.incrementAndGet(bucketOf(value));
+		total.add(value);
+		long max;
+		while (value > (max = this.max.get()) && !this.max.compareAndSet(max, value));
+	}
+
+	/**
+	 * Return the number of values recorded
+	 * @return
+	 */
+	public long count() {
+		long count = 0;
+		for (int i = 0; i < N_BUCKETS; i++) count += counts.get(i);
+		return count;
+	}
+
+	public long max() {
+		return max.get();
+	}
+
+	public double mean() {
+		long count = count();
+		return count == 0 ? 0 : (double) total.sum() / count;
+	}
+
+	/**
+	 * Return an upper bound of the given fraction of the values
+	 * @param fraction between 0 and 1, e.g. 0.99 for the 99th percentile
+	 * @return
+	 */
+	public long percentile(double fraction) {
+		long rank = (long) Math.ceil(fraction * count());
+		long count = 0;
+		for (int i = 0; i < N_BUCKETS; i++) {
+			count += counts.get(i);
+			if (count >= Math.max(rank, 1)) return Math.min(upperBound(i), max());
+		}
+		return 0;
+	}
+
+	public String toString() {
+		return "count " + count() + " mean " + String.format("%.1f", mean()) 
+				+ " p50 " + percentile(0.5) + " p90 " + percentile(0.9) 
+				+ " p99 " + percentile(0.99) + " max " + max();
+	}
+
+	private static int bucketOf(long value) {
+		if (value < SUB_BUCKETS) return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		return SUB_BUCKETS * (exponent - SUB_BITS + 1) + (int) (value >>> (exponent - SUB_BITS)) - SUB_BUCKETS;
+	}
+
+	/* Return the highest value counted in a bucket */
+	private static long upperBound(int bucket) {
+		if (bucket < SUB_BUCKETS) return bucket;
+		int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+		long sub = bucket % SUB_BUCKETS + SUB_BUCKETS;
+		return ((sub + 1) << (exponent - SUB_BITS)) - 1;
+	}
+
+	/* Private constants */
+	private static final int SUB_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int N_BUCKETS = bucketOf(Long.MAX_VALUE) + 1;
+
+	/* Private instance variables */
+	private AtomicLongArray counts = new AtomicLongArray(N_BUCKETS);
+	private LongAdder total = new LongAdder();
+	private AtomicLong max = new AtomicLong();
+
+}
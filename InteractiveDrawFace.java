@@ -7,7 +7,9 @@ import acm.program.*;
 import acm.graphics.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.util.*;
 import javax.swing.*;
+import javax.swing.Timer;
 
 public class InteractiveDrawFace extends GraphicsProgram {
 
@@ -22,6 +24,25 @@ public class InteractiveDrawFace extends GraphicsProgram {
 		initRadioButtons();
 		initColorChooser();
 
+		// Check box to spray shapes while the mouse is dragged
+		sprayBox = new JCheckBox("Spray");
+		add(sprayBox, SOUTH);
+
+		// All faces and ovals are drawn by one layer sharing a sprite per style,
+		// which repaints only where shapes are added
+		getGCanvas().setAutoRepaintFlag(false);
+		faces = new FaceLayer();
+		add(faces);
+		initStatistics();
+
+		// Commits the sprayed shapes once per frame
+		frameTimer = new Timer(FRAME_MILLIS, new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				nextFrame();
+			}
+		});
+		frameTimer.start();
+
 		// Must call this method to be able to get mouse events
 		addMouseListeners();
 
@@ -71,6 +92,14 @@ public class InteractiveDrawFace extends GraphicsProgram {
 		add(pickColor, SOUTH);
 	}
 
+	// Creates the label showing frames and shapes per second
+	private void initStatistics() {
+		statistics = new GLabel("");
+		statistics.setFont(STATISTICS_FONT);
+		add(statistics, STATISTICS_X, STATISTICS_Y);
+		lastStatisticsNanos = System.nanoTime();
+	}
+
 	// Returns diameter size corresponding to radio button choice 
 	private double getDiamSize() {
 		double size = 0;
@@ -97,28 +126,103 @@ public class InteractiveDrawFace extends GraphicsProgram {
 
 	// Called every time user clicks mouse
 	public void mouseClicked(MouseEvent e) {
-		GObject obj;
+		if (sprayBox.isSelected()) return;
 		double diam = getDiamSize();
-		if (checkbox.isSelected()) {
-			obj = new GFace(diam, diam);
-		} else {
-			obj = new GOval(diam, diam);
-		}
-		obj.setColor(getCurrentColor());
-		add(obj, e.getX(), e.getY());
+		faces.add(e.getX(), e.getY(), faces.styleOf(checkbox.isSelected(), diam, getCurrentColor()));
+		shapesSinceStatistics++;
+	}
+
+	// Starts spraying at the mouse position
+	public void mousePressed(MouseEvent e) {
+		if (!sprayBox.isSelected()) return;
+		spraying = true;
+		sprayStyle = faces.styleOf(checkbox.isSelected(), getDiamSize(), getCurrentColor());
+		sprayX = e.getX();
+		sprayY = e.getY();
+		spray(SPRAY_PER_EVENT);
+	}
+
+	// Sprays along the path of the mouse, the shapes are shown with the next frame
+	public void mouseDragged(MouseEvent e) {
+		if (!spraying) return;
+		sprayX = e.getX();
+		sprayY = e.getY();
+		spray(SPRAY_PER_EVENT);
+	}
+
+	public void mouseReleased(MouseEvent e) {
+		spraying = false;
 	}
 
 	// Called whenever an action event occurs 
 	public void actionPerformed(ActionEvent e) {
 		if (e.getActionCommand().equals("Clear")) { 
-			removeAll(); // Clears the canvas
+			faces.clear(); // Clears the canvas
+			nBuffered = 0;
+			getGCanvas().repaint();
 		} 
 	}
 
+	// Buffers new shapes scattered around the spray position
+	private void spray(int n) {
+		ensureBufferCapacity(nBuffered + n);
+		double radius = SPRAY_RADIUS - getDiamSize() / 2;
+		for (int i = 0; i < n; i++) {
+			double angle = 2 * Math.PI * rgen.nextDouble();
+			double distance = radius * Math.sqrt(rgen.nextDouble());
+			bufferedX[nBuffered] = (float) (sprayX + distance * Math.cos(angle) - getDiamSize() / 2);
+			bufferedY[nBuffered] = (float) (sprayY + distance * Math.sin(angle) - getDiamSize() / 2);
+			bufferedStyles[nBuffered] = (byte) sprayStyle;
+			nBuffered++;
+		}
+	}
+
+	private void ensureBufferCapacity(int capacity) {
+		if (capacity <= bufferedX.length) return;
+		capacity = Math.max(capacity, 2 * bufferedX.length);
+		bufferedX = Arrays.copyOf(bufferedX, capacity);
+		bufferedY = Arrays.copyOf(bufferedY, capacity);
+		bufferedStyles = Arrays.copyOf(bufferedStyles, capacity);
+	}
+
+	// Keeps spraying while the mouse is held still, commits the buffered 
+	// shapes in one batch and updates the statistics once a second
+	private void nextFrame() {
+		if (spraying) spray(SPRAY_PER_FRAME);
+		if (nBuffered > 0) {
+			faces.addAll(bufferedX, bufferedY, bufferedStyles, nBuffered);
+			shapesSinceStatistics += nBuffered;
+			nBuffered = 0;
+		}
+		long now = System.nanoTime();
+		if (now - lastStatisticsNanos >= STATISTICS_NANOS) {
+			double seconds = (now - lastStatisticsNanos) / 1e9;
+			long paints = faces.getPaintCount();
+			GRectangle before = statistics.getBounds();
+			statistics.setLabel(String.format("%.0f fps  %.0f shapes/s  %d shapes", 
+					(paints - paintsAtStatistics) / seconds, shapesSinceStatistics / seconds, faces.size()));
+			before.add(statistics.getBounds());
+			getGCanvas().repaint((int) before.getX(), (int) before.getY() - 1, 
+					(int) Math.ceil(before.getWidth()) + 2, (int) Math.ceil(before.getHeight()) + 2);
+			paintsAtStatistics = paints;
+			shapesSinceStatistics = 0;
+			lastStatisticsNanos = now;
+		}
+	}
+
 	/* Private constants */
 	private static final double SMALL_DIAM = 20; 
 	private static final double MED_DIAM = 40; 
 	private static final double LARGE_DIAM = 60;
+	private static final int FRAME_MILLIS = 16;
+	private static final double SPRAY_RADIUS = 50;
+	private static final int SPRAY_PER_EVENT = 10;
+	private static final int SPRAY_PER_FRAME = 100;
+	private static final int INITIAL_BUFFER_SIZE = 256;
+	private static final long STATISTICS_NANOS = 1000000000L;
+	private static final double STATISTICS_X = 10;
+	private static final double STATISTICS_Y = 20;
+	private static final Font STATISTICS_FONT = new Font("SansSerif", Font.PLAIN, 12);
 
 	/* Private instance variables */
 	// Use instance variables to keep track of interactors whose 
@@ -128,5 +232,23 @@ public class InteractiveDrawFace extends GraphicsProgram {
 	private JRadioButton medRB;
 	private JRadioButton largeRB;
 	private JComboBox pickColor;
+	private JCheckBox sprayBox;
+	private FaceLayer faces;
+	private Timer frameTimer;
+	private GLabel statistics;
+	private long lastStatisticsNanos;
+	private long paintsAtStatistics;
+	private long shapesSinceStatistics;
+
+	// Shapes sprayed since the last frame
+	private float[] bufferedX = new float[INITIAL_BUFFER_SIZE];
+	private float[] bufferedY = new float[INITIAL_BUFFER_SIZE];
+	private byte[] bufferedStyles = new byte[INITIAL_BUFFER_SIZE];
+	private int nBuffered;
+	private boolean spraying;
+	private int sprayStyle;
+	private double sprayX;
+	private double sprayY;
+	private Random rgen = new Random();
 
 }
\ No newline at end of file
@@ -0,0 +1,249 @@
+/*
+ * File: JournalReplayer.java
+ * --------------------------
+ * This program re-runs the games recorded by a GameJournal through the
+ * scoring rules and reports every roll or score which does not follow
+ * the rules, e.g. to settle a disputed score.
+ */
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+public class JournalReplayer implements YahtzeeConstants {
+
+	/**
+	 * Replay a journal file
+	 * usage: JournalReplayer file
+	 * @param args
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("usage: JournalReplayer file");
+			return;
+		}
+		File file = new File(args[0]);
+		FileChannel channel = new RandomAccessFile(file, "r").getChannel();
+		ByteBuffer buffer;
+		try {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			channel.close();
+		}
+		JournalReplayer replayer = new JournalReplayer();
+		long start = System.nanoTime();
+		replayer.replay(buffer);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		for (String error : replayer.getErrors()) {
+			System.out.println(error);
+		}
+		System.out.printf("%d games, %d turns, %d errors in %.3f s (%.0f turns/s)%n", 
+				replayer.getGames(), replayer.getTurns(), replayer.getErrorCount(), 
+				seconds, replayer.getTurns() / seconds);
+		if (replayer.isTruncated()) {
+			System.out.println("the journal ends with an incomplete record");
+		}
+	}
+
+	/**
+	 * Replay all records of a journal, starting with its header
+	 * @param buffer
+	 */
+	public void replay(ByteBuffer buffer) {
+		if (buffer.remaining() < GameJournal.HEADER_SIZE 
+		    || buffer.getInt(buffer.position()) != GameJournal.MAGIC) {
+			throw new IllegalArgumentException("not a game journal");
+		}
+		if (buffer.getInt(buffer.position() + 4) != GameJournal.VERSION) {
+			throw new IllegalArgumentException("unsupported journal version");
+		}
+		int position = buffer.position() + GameJournal.HEADER_SIZE;
+		int limit = buffer.limit();
+		while (position < limit) {
+			int record = buffer.get(position) & 0xff;
+			int argument = record & GameJournal.ARGUMENT_MASK;
+			switch (record >>> GameJournal.OPCODE_SHIFT) {
+			case GameJournal.START:
+				if (limit - position < GameJournal.START_SIZE) break;
+				startGame(position, buffer.get(position + 1) & 0xff, argument);
+				position += GameJournal.START_SIZE;
+				continue;
+			case GameJournal.ROLL:
+				if (limit - position < GameJournal.ROLL_SIZE) break;
+				roll(position, argument, buffer.getShort(position + 1) & 0xffff);
+				position += GameJournal.ROLL_SIZE;
+				continue;
+			case GameJournal.SCORE:
+				if (limit - position < GameJournal.SCORE_SIZE) break;
+				score(position, buffer.get(position + 1) & 0xff, buffer.get(position + 2) & 0xff, 
+						argument, buffer.getShort(position + 3));
+				position += GameJournal.SCORE_SIZE;
+				continue;
+			case GameJournal.END:
+				endGame(position);
+				position += GameJournal.END_SIZE;
+				continue;
+			default:
+				error(position, "unknown record " + record);
+				return;
+			}
+			truncated = true;
+			return;
+		}
+	}
+
+	private void startGame(int position, int nPlayers, int nColumns) {
+		if (nPlayers < 1 || nColumns < 1 || nColumns > GameJournal.MAX_JOURNAL_COLUMNS) {
+			error(position, nPlayers + " players with " + nColumns + " columns");
+			inGame = false;
+			return;
+		}
+		engine = engineFor(nColumns);
+		if (engine == null) {
+			error(position, "no rules with " + nColumns + " columns per player");
+			inGame = false;
+			return;
+		}
+		this.nColumns = nColumns;
+		if (states.length != nPlayers * nColumns) states = new long[nPlayers * nColumns];
+		Arrays.fill(states, YahtzeeState.INITIAL);
+		currentPlayer = 0;
+		roll = 0;
+		inGame = true;
+	}
+
+	private void roll(int position, int rerollMask, int packedDice) {
+		if (!inGame) {
+			error(position, "roll outside of a game");
+			return;
+		}
+		if (roll == 0 && rerollMask != YahtzeeRules.ALL_DICE) {
+			error(position, "first roll keeps dice");
+		} else if (roll >= YahtzeeRules.N_ROLLS) {
+			error(position, "more than " + YahtzeeRules.N_ROLLS + " rolls");
+		}
+		GameJournal.unpackDice(packedDice, rolled);
+		for (int i = 0; i < N_DICE; i++) {
+			if (rolled[i] < 1 || rolled[i] > YahtzeeRules.N_FACES) {
+				error(position, "die " + i + " shows " + rolled[i]);
+			} else if (roll > 0 && (rerollMask & (1 << i)) == 0 && rolled[i] != dice[i]) {
+				error(position, "kept die " + i + " changed from " + dice[i] + " to " + rolled[i]);
+			}
+			dice[i] = rolled[i];
+		}
+		roll++;
+	}
+
+	private void score(int position, int player, int column, int category, int score) {
+		turns++;
+		if (!inGame || roll == 0) {
+			error(position, "score without a roll");
+			return;
+		}
+		roll = 0;
+		if (player != currentPlayer || column >= nColumns || player * nColumns >= states.length) {
+			error(position, "player " + player + " column " + column + " out of turn");
+			return;
+		}
+		currentPlayer = (currentPlayer + 1) % (states.length / nColumns);
+		if (!YahtzeeEngine.isScoringCategory(category)) {
+			error(position, "category " + category + " cannot be scored");
+			return;
+		}
+		int index = column + player * nColumns;
+		long state = states[index];
+		if (YahtzeeState.isUsed(state, category)) {
+			error(position, "category " + category + " used twice by player " + player);
+			return;
+		}
+		int multiplier = engine.getMultiplier(column);
+		int rollIndex = engine.indexOf(dice);
+		int expected = engine.categoryScore(state, rollIndex, category, multiplier);
+		if (score != expected) {
+			error(position, "player " + player + " scored " + score + " in category " 
+					+ category + ", the dice " + Arrays.toString(dice) + " give " + expected);
+		}
+		states[index] = engine.score(state, rollIndex, category, multiplier);
+	}
+
+	/* Return the rules whose players have the given number of columns, null if there are none */
+	private static YahtzeeEngine engineFor(int nColumns) {
+		for (YahtzeeEngine engine : ENGINES) {
+			if (engine.getColumnCount() == nColumns) return engine;
+		}
+		return null;
+	}
+
+	private void endGame(int position) {
+		if (!inGame) {
+			error(position, "end outside of a game");
+			return;
+		}
+		for (int i = 0; i < states.length; i++) {
+			if (!YahtzeeState.isFinished(states[i])) {
+				error(position, "game ended with an unfinished scorecard");
+				break;
+			}
+		}
+		games++;
+		inGame = false;
+	}
+
+	private void error(int position, String message) {
+		errorCount++;
+		if (errors.size() < MAX_ERRORS) {
+			errors.add("at " + position + " in game " + (games + 1) + ": " + message);
+		}
+	}
+
+	public long getGames() {
+		return games;
+	}
+
+	public long getTurns() {
+		return turns;
+	}
+
+	public long getErrorCount() {
+		return errorCount;
+	}
+
+	/**
+	 * Return the first errors found
+	 * @return
+	 */
+	public List<String> getErrors() {
+		return errors;
+	}
+
+	/**
+	 * Return whether the journal ends with an incomplete record, 
+	 * e.g. after a crash
+	 * @return
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+
+	/* Private constants */
+	private static final int MAX_ERRORS = 100;
+	private static final YahtzeeEngine[] ENGINES = { YahtzeeEngine.STANDARD, YahtzeeEngine.TRIPPLE };
+
+	/* Private instance variables */
+	private long[] states = new long[0];
+	private int nColumns = 1;
+	private YahtzeeEngine engine;
+	private int currentPlayer;
+	private int roll;
+	private boolean inGame;
+	private int[] dice = new int[N_DICE];
+	private int[] rolled = new int[N_DICE];
+	private long games;
+	private long turns;
+	private long errorCount;
+	private List<String> errors = new ArrayList<String>();
+	private boolean truncated;
+
+}
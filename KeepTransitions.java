@@ -0,0 +1,115 @@
+/*
+ * File: KeepTransitions.java
+ * --------------------------
+ * This class holds the probability of reaching each roll of all dice
+ * from each set of kept dice, see DiceMultisets. Most pairs cannot be
+ * reached, so the matrix is stored in compressed sparse row form: the
+ * outcomes of keep k are the entries ROW_START[k] up to ROW_START[k + 1]
+ * of ROLLS and PROBABILITIES. It is computed once when the class is 
+ * loaded and never changed.
+ */
+
+public class KeepTransitions implements YahtzeeConstants {
+
+	/**
+	 * Return the expected value of keeping the given dice and rolling the
+	 * others once
+	 * @param keep multiset index of the kept dice
+	 * @param rollValues the value of each roll, by multiset index
+	 * @return
+	 */
+	public static double expectedValue(int keep, double[] rollValues) {
+		double sum = 0;
+		for (int i = ROW_START[keep], end = ROW_START[keep + 1]; i < end; i++) {
+			sum += PROBABILITIES[i] * rollValues[ROLLS[i]];
+		}
+		return sum;
+	}
+
+	/**
+	 * Compute the expected value of every keep
+	 * @param rollValues the value of each roll, by multiset index
+	 * @param keepValues receives the value of each keep
+	 */
+	public static void expectedValues(double[] rollValues, double[] keepValues) {
+		int i = 0;
+		for (int keep = 0; keep < DiceMultisets.N_KEEPS; keep++) {
+			double sum = 0;
+			for (int end = ROW_START[keep + 1]; i < end; i++) {
+				sum += PROBABILITIES[i] * rollValues[ROLLS[i]];
+			}
+			keepValues[keep] = sum;
+		}
+	}
+
+	/**
+	 * Return the number of rolls that can follow from keeping the given dice
+	 * @param keep multiset index of the kept dice
+	 * @return
+	 */
+	public static int outcomeCount(int keep) {
+		return ROW_START[keep + 1] - ROW_START[keep];
+	}
+
+	/**
+	 * Return the probability of rolling the given dice after keeping others
+	 * @param keep multiset index of the kept dice
+	 * @param roll multiset index of the roll
+	 * @return
+	 */
+	public static double probability(int keep, int roll) {
+		for (int i = ROW_START[keep]; i < ROW_START[keep + 1]; i++) {
+			if (ROLLS[i] == roll) return PROBABILITIES[i];
+		}
+		return 0;
+	}
+
+	/* Return the probability of each roll after keeping the given dice */
+	private static double[] outcomeProbabilities(int keep) {
+		int free = N_DICE - DiceMultisets.sizeOf(keep);
+		int nSequences = (int) Math.pow(YahtzeeRules.N_FACES, free);
+		double[] probability = new double[DiceMultisets.N_ROLLS];
+		for (int sequence = 0; sequence < nSequences; sequence++) {
+			int roll = keep;
+			int rest = sequence;
+			for (int i = 0; i < free; i++) {
+				roll = DiceMultisets.addDie(roll, rest % YahtzeeRules.N_FACES + 1);
+				rest /= YahtzeeRules.N_FACES;
+			}
+			probability[roll] += 1.0 / nSequences;
+		}
+		return probability;
+	}
+
+	/* Private static variables */
+	private static final int[] ROW_START = new int[DiceMultisets.N_KEEPS + 1];
+	private static final int[] ROLLS;
+	private static final double[] PROBABILITIES;
+
+	/* Compute the rows of all keeps, the rolls of a row in ascending order */
+	static {
+		double[][] rows = new double[DiceMultisets.N_KEEPS][];
+		int nEntries = 0;
+		for (int keep = 0; keep < DiceMultisets.N_KEEPS; keep++) {
+			rows[keep] = outcomeProbabilities(keep);
+			for (int roll = 0; roll < DiceMultisets.N_ROLLS; roll++) {
+				if (rows[keep][roll] > 0) nEntries++;
+			}
+		}
+		ROLLS = new int[nEntries];
+		PROBABILITIES = new double[nEntries];
+		nEntries = 0;
+		for (int keep = 0; keep < DiceMultisets.N_KEEPS; keep++) {
+			ROW_START[keep] = nEntries;
+			for (int roll = 0; roll < DiceMultisets.N_ROLLS; roll++) {
+				if (rows[keep][roll] > 0) {
+					ROLLS[nEntries] = roll;
+					PROBABILITIES[nEntries] = rows[keep][roll];
+					nEntries++;
+				}
+			}
+		}
+		ROW_START[DiceMultisets.N_KEEPS] = nEntries;
+	}
+
+}
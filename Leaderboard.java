@@ -0,0 +1,151 @@
+/*
+ * File: Leaderboard.java
+ * ----------------------
+ * This class keeps the best scores, best first, for many games that 
+ * finish at the same time. Readers get an immutable snapshot and never
+ * wait. A score that cannot enter the full board is rejected by a single
+ * read of the current snapshot; only qualifying scores take the lock,
+ * and they publish a new snapshot.
+ */
+
+import java.util.*;
+import java.util.concurrent.locks.*;
+
+public class Leaderboard {
+
+	/**
+	 * Creates an empty leaderboard
+	 * @param capacity the maximum number of entries kept
+	 */
+	public Leaderboard(int capacity) {
+		this.capacity = capacity;
+		snapshot = new Snapshot(new String[0], new int[0]);
+	}
+
+	/**
+	 * Offer the score of a finished game. The new score is placed before 
+	 * entries with the same score.
+	 * @param name
+	 * @param score
+	 * @return whether the score has entered the board
+	 */
+	public boolean offer(String name, int score) {
+		if (!snapshot.qualifies(score, capacity)) return false;
+		lock.lock();
+		try {
+			Snapshot current = snapshot;
+			if (!current.qualifies(score, capacity)) return false;
+			int position = current.positionOf(score);
+			int size = Math.min(current.size() + 1, capacity);
+			String[] names = new String[size];
+			int[] values = new int[size];
+			System.arraycopy(current.names, 0, names, 0, position);
+			System.arraycopy(current.values, 0, values, 0, position);
+			names[position] = name;
+			values[position] = score;
+			System.arraycopy(current.names, position, names, position + 1, size - position - 1);
+			System.arraycopy(current.values, position, values, position + 1, size - position - 1);
+			snapshot = new Snapshot(names, values);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Remove all entries
+	 */
+	public void clear() {
+		replaceAll(new String[0], new int[0], 0);
+	}
+
+	/**
+	 * Replace all entries at once, keeping the best of them. Entries with 
+	 * the same score keep their order.
+	 * @param names
+	 * @param values
+	 * @param count the number of entries used from the arrays
+	 */
+	public void replaceAll(final String[] names, final int[] values, int count) {
+		Integer[] order = new Integer[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return values[b] < values[a] ? -1 : (values[b] == values[a] ? 0 : 1);
+			}
+		});
+		int size = Math.min(count, capacity);
+		String[] sortedNames = new String[size];
+		int[] sortedValues = new int[size];
+		for (int i = 0; i < size; i++) {
+			sortedNames[i] = names[order[i]];
+			sortedValues[i] = values[order[i]];
+		}
+		lock.lock();
+		try {
+			snapshot = new Snapshot(sortedNames, sortedValues);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Return a consistent view of the board at this moment
+	 * @return
+	 */
+	public Snapshot snapshot() {
+		return snapshot;
+	}
+
+	/** An immutable state of the leaderboard */
+	public static class Snapshot {
+
+		private Snapshot(String[] names, int[] values) {
+			this.names = names;
+			this.values = values;
+		}
+
+		public int size() {
+			return values.length;
+		}
+
+		public String getName(int i) {
+			return names[i];
+		}
+
+		public int getValue(int i) {
+			return values[i];
+		}
+
+		/* Return whether the score enters a board with this snapshot */
+		private boolean qualifies(int score, int capacity) {
+			return values.length < capacity || score >= values[values.length - 1];
+		}
+
+		/* Return the index of the first entry not better than the score */
+		private int positionOf(int score) {
+			int low = 0;
+			int high = values.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (values[middle] > score) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+		private final String[] names;
+		private final int[] values;
+	}
+
+	/* Private instance variables */
+	private final int capacity;
+	private final Lock lock = new ReentrantLock();
+	private volatile Snapshot snapshot;
+
+}
@@ -0,0 +1,129 @@
+/*
+ * File: Metrics.java
+ * ------------------
+ * This class keeps named counters and histograms for the whole program
+ * and can write them to a file periodically. Counters and histograms
+ * are created once, kept in static fields by their users and updated
+ * without locks.
+ *
+ * Code on a hot path checks ENABLED (or a constant of its own) before
+ * recording. ENABLED is fixed when the class is loaded, so the JIT 
+ * compiler drops the recording when it is false. The games record 
+ * metrics only when started with -Dyahtzee.metrics=true.
+ */
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class Metrics {
+
+	/** Whether the games record and export metrics, off unless the yahtzee.metrics property is true */
+	public static final boolean ENABLED = Boolean.getBoolean("yahtzee.metrics");
+
+	/**
+	 * Return the counter with the given name, creating it if needed
+	 * @param name
+	 * @return
+	 */
+	public static LongAdder counter(String name) {
+		LongAdder counter = COUNTERS.get(name);
+		if (counter == null) {
+			LongAdder created = new LongAdder();
+			counter = COUNTERS.putIfAbsent(name, created);
+			if (counter == null) counter = created;
+		}
+		return counter;
+	}
+
+	/**
+	 * Return the histogram with the given name, creating it if needed
+	 * @param name
+	 * @return
+	 */
+	public static Histogram histogram(String name) {
+		Histogram histogram = HISTOGRAMS.get(name);
+		if (histogram == null) {
+			Histogram created = new Histogram();
+			histogram = HISTOGRAMS.putIfAbsent(name, created);
+			if (histogram == null) histogram = created;
+		}
+		return histogram;
+	}
+
+	/**
+	 * Return the elapsed time since a System.nanoTime value in microseconds
+	 * @param startNanos
+	 * @return
+	 */
+	public static long micros(long startNanos) {
+		return (System.nanoTime() - startNanos) / 1000;
+	}
+
+	/**
+	 * Return all counters and histograms as text, one per line
+	 * @return
+	 */
+	public static String report() {
+		StringBuilder text = new StringBuilder();
+		for (Map.Entry<String, LongAdder> entry : new TreeMap<String, LongAdder>(COUNTERS).entrySet()) {
+			text.append(entry.getKey()).append(' ').append(entry.getValue().sum()).append('\n');
+		}
+		for (Map.Entry<String, Histogram> entry : new TreeMap<String, Histogram>(HISTOGRAMS).entrySet()) {
+			text.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Write the report to a file now and then every period on a background
+	 * thread, replacing the file each time
+	 * @param file
+	 * @param periodMillis
+	 */
+	public static void exportTo(final File file, long periodMillis) {
+		EXPORTER.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				try {
+					export(file);
+				} catch (IOException ex) {
+					// try again next period
+				}
+			}
+		}, 0, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Write the report to a file, replacing it only once it is complete
+	 * @param file
+	 */
+	public static void export(File file) throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+		Writer writer = new OutputStreamWriter(new FileOutputStream(temp), "UTF-8");
+		try {
+			writer.write(report());
+		} finally {
+			writer.close();
+		}
+		if (!temp.renameTo(file)) {
+			file.delete();
+			if (!temp.renameTo(file)) throw new IOException("cannot rename " + temp + " to " + file);
+		}
+	}
+
+	/* Private constants */
+	private static final ConcurrentMap<String, LongAdder> COUNTERS = new ConcurrentHashMap<String, LongAdder>();
+	private static final ConcurrentMap<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<String, Histogram>();
+
+	/* Writes the reports, never keeps the program alive */
+	private static final ScheduledExecutorService EXPORTER = Executors.newSingleThreadScheduledExecutor(
+			new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "Metrics export");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+}
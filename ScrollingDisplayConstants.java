@@ -0,0 +1,65 @@
+/*
+ * File: ScrollingDisplayConstants.java
+ * ------------------------------------
+ * This file declares the sizes, colors and fonts of ScrollingView and
+ * VirtualScorecard. They have the values YahtzeeDisplay uses, so that
+ * both displays look alike, but are declared here because the
+ * constants of YahtzeeDisplay belong to an auxiliary class of its
+ * source file, which other files should not use.
+ */
+
+import java.awt.*;
+
+public interface ScrollingDisplayConstants extends YahtzeeConstants {
+
+	/** The colors of the window, the dice and their pips */
+	public static final Color BACKGROUND_COLOR = new Color(0x339933);
+	public static final Color DIE_COLOR = new Color(0xEEEEEE);
+	public static final Color PIP_COLOR = new Color(0x000099);
+
+	/** The colors of the scorecard */
+	public static final Color CATEGORY_TEXT = new Color(0x990033);
+	public static final Color CATEGORY_BACKGROUND = new Color(0xFFFFCC);
+	public static final Color FIXED_CATEGORY_TEXT = new Color(0x777777);
+	public static final Color FIXED_CATEGORY_BACKGROUND = new Color(0xDDDDDD);
+	public static final Color STANDARD_HIGHLIGHT = Color.YELLOW;
+
+	/** The size, position and font of the roll button */
+	public static final int BUTTON_WIDTH = 85;
+	public static final int BUTTON_HEIGHT = 20;
+	public static final int BUTTON_X = 12;
+	public static final int BUTTON_Y = 10;
+	public static final Font BUTTON_FONT = new Font("Dialog", Font.PLAIN, 12);
+
+	/** The size and position of the dice */
+	public static final int DICE_SIZE = 44;
+	public static final int DICE_X = 33;
+	public static final int DICE_Y = 40;
+	public static final int DICE_SEP = 6;
+	public static final int DICE_CORNER_RADIUS = 9;
+	public static final int PIP_RADIUS = 5;
+	public static final Font QUESTION_MARK_FONT = new Font("Helvetica", Font.PLAIN, 36);
+
+	/** The position and font of the message line */
+	public static final int MESSAGE_X = 33;
+	public static final int MESSAGE_Y = 315;
+	public static final Font MESSAGE_FONT = new Font("Helvetica", Font.PLAIN, 12);
+
+	/** The position and cell sizes of the scorecard */
+	public static final int SCORECARD_X = 110;
+	public static final int SCORECARD_Y = 10;
+	public static final int SCORECARD_MARGIN = 4;
+	public static final int CATEGORY_WIDTH = 140;
+	public static final int CATEGORY_HEIGHT = 15;
+	public static final int CATEGORY_INDENT = 14;
+	public static final int PLAYER_WIDTH = 65;
+	public static final int PLAYER_HEIGHT = 20;
+	public static final int DIVIDER_SIZE = 1;
+
+	/** The fonts of the scorecard */
+	public static final Font CATEGORY_FONT = new Font("Helvetica", Font.BOLD, 10);
+	public static final Font SCORE_FONT = new Font("Helvetica", Font.PLAIN, 10);
+	public static final Font FIXED_SCORE_FONT = new Font("Helvetica", Font.BOLD, 10);
+	public static final Font TITLE_FONT = new Font("Helvetica", Font.PLAIN, 12);
+
+}
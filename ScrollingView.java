@@ -0,0 +1,314 @@
+/*
+ * File: ScrollingView.java
+ * ------------------------
+ * This class shows a game on a VirtualScorecard, so that it works for 
+ * tables with more players than YahtzeeDisplay can show: the column of 
+ * the player whose turn it is scrolls into view, the others can be 
+ * scrolled to with the header of the category names. Dice, button and
+ * message look the same as in YahtzeeDisplay.
+ */
+
+import java.awt.*;
+import java.awt.event.*;
+
+import acm.graphics.*;
+
+public class ScrollingView implements YahtzeeView, ScrollingDisplayConstants, MouseListener {
+
+	/**
+	 * Creates the display on a canvas with one column per player
+	 * @param canvas
+	 * @param columnNames one column of the scorecard per name
+	 */
+	public ScrollingView(GCanvas canvas, String[] columnNames) {
+		this(canvas, columnNames, 1);
+	}
+
+	/**
+	 * Creates the display on a canvas with several columns per player; a 
+	 * category can only be selected in the columns of the player whose 
+	 * turn it is
+	 * @param canvas
+	 * @param columnNames one column of the scorecard per name
+	 * @param columnsPerPlayer the number of adjacent columns of a player
+	 */
+	public ScrollingView(GCanvas canvas, String[] columnNames, int columnsPerPlayer) {
+		this.columnsPerPlayer = columnsPerPlayer;
+		canvas.setBackground(BACKGROUND_COLOR);
+		rollButton = new Button("Roll Dice");
+		rollButton.addMouseListener(this);
+		canvas.add(rollButton, BUTTON_X, BUTTON_Y);
+		for (int i = 0; i < N_DICE; i++) {
+			dice[i] = new Die();
+			dice[i].addMouseListener(this);
+			canvas.add(dice[i], DICE_X, DICE_Y + i * (DICE_SIZE + DICE_SEP));
+		}
+		int width = canvas.getWidth() > 0 ? canvas.getWidth() : APPLICATION_WIDTH;
+		scorecard = new VirtualScorecard(columnNames, columnsFitting(width));
+		scorecard.addMouseListener(this);
+		canvas.add(scorecard, SCORECARD_X, SCORECARD_Y);
+		canvas.addComponentListener(new ComponentAdapter() {
+			public void componentResized(ComponentEvent e) {
+				scorecard.setVisibleColumns(columnsFitting(e.getComponent().getWidth()));
+			}
+		});
+		messageArea = new GLabel("");
+		messageArea.setColor(Color.WHITE);
+		messageArea.setFont(MESSAGE_FONT);
+		canvas.add(messageArea, MESSAGE_X, MESSAGE_Y);
+	}
+
+	public void waitForPlayerToClickRoll(int player) {
+		rollButton.setLabel("Roll Dice");
+		rollButton.setEnabled(true);
+		scorecard.setActiveColumn(player);
+		activeColumn = player;
+		for (int i = 0; i < N_DICE; i++) dice[i].set(0);
+		waitFor(WAIT_FOR_ROLL);
+	}
+
+	public void displayDice(int[] values) {
+		messageArea.setLabel("");
+		for (int i = 0; i < N_DICE; i++) {
+			dice[i].set(values[i]);
+			dice[i].setHighlighted(false);
+		}
+	}
+
+	public void waitForPlayerToSelectDice() {
+		rollButton.setLabel("Roll again");
+		rollButton.setEnabled(true);
+		waitFor(WAIT_FOR_REROLL);
+	}
+
+	public boolean isDieSelected(int index) {
+		return dice[index].isHighlighted();
+	}
+
+	public int waitForPlayerToSelectCategory() {
+		rollButton.setLabel("Roll Dice");
+		rollButton.setEnabled(false);
+		waitFor(WAIT_FOR_CATEGORY);
+		return selectedCategory;
+	}
+
+	public void updateScorecard(int category, int player, int score) {
+		scorecard.setScore(category, player, score);
+		dirty = true;
+	}
+
+	public void flushScorecard() {
+		if (!dirty) return;
+		dirty = false;
+		scorecard.repaintScores();
+	}
+
+	public void printMessage(String message) {
+		messageArea.setLabel(message);
+	}
+
+	/**
+	 * Return the column the last category was selected in, one of the 
+	 * columns of the player whose turn it is
+	 * @return
+	 */
+	public int getSelectedColumn() {
+		return selectedColumn;
+	}
+
+	public void mouseClicked(MouseEvent e) {
+		if (mode == WAIT_FOR_REROLL && e.getSource() instanceof Die) {
+			Die die = (Die) e.getSource();
+			die.setHighlighted(!die.isHighlighted());
+		}
+	}
+
+	public void mousePressed(MouseEvent e) {
+		if (e.getSource() == rollButton) {
+			rollButton.setPressed(true);
+			return;
+		}
+		if (e.getSource() != scorecard) return;
+		int direction = scorecard.scrollDirectionAt(e.getX(), e.getY());
+		if (direction != 0) {
+			scorecard.scroll(direction);
+			return;
+		}
+		if (mode != WAIT_FOR_CATEGORY) return;
+		int category = scorecard.categoryAt(e.getY());
+		if (category < 0 || !YahtzeeEngine.isScoringCategory(category)) return;
+		scorecard.setHighlightedCategory(category);
+		pressedCategory = category;
+	}
+
+	public void mouseReleased(MouseEvent e) {
+		if (e.getSource() == rollButton) {
+			if (rollButton.setPressed(false) && (mode == WAIT_FOR_ROLL || mode == WAIT_FOR_REROLL)) {
+				wakeUp();
+			}
+			return;
+		}
+		if (pressedCategory < 0) return;
+		int category = pressedCategory;
+		pressedCategory = -1;
+		scorecard.setHighlightedCategory(-1);
+		if (mode != WAIT_FOR_CATEGORY || e.getSource() != scorecard) return;
+		int column = scorecard.columnAt(e.getX());
+		if (scorecard.categoryAt(e.getY()) != category || column < 0) return;
+		/* only the player whose turn it is can score */
+		if (column / columnsPerPlayer != activeColumn / columnsPerPlayer) return;
+		selectedCategory = category;
+		selectedColumn = column;
+		wakeUp();
+	}
+
+	public void mouseEntered(MouseEvent e) {
+	}
+
+	public void mouseExited(MouseEvent e) {
+	}
+
+	/* Return how many columns of the scorecard fit into a window width */
+	private static int columnsFitting(int width) {
+		return (width - SCORECARD_X - CATEGORY_WIDTH) / PLAYER_WIDTH;
+	}
+
+	/* Block the game thread until the player has done what the mode asks for */
+	private synchronized void waitFor(int mode) {
+		done = false;
+		this.mode = mode;
+		try {
+			while (!done) wait();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		this.mode = 0;
+		messageArea.setLabel("");
+	}
+
+	/* Called on the event thread once the action of the mode has happened */
+	private synchronized void wakeUp() {
+		if (mode == 0) return;
+		done = true;
+		notifyAll();
+	}
+
+	/* A die showing its value with pips, or a question mark before the first roll */
+	private static class Die extends GCompound {
+
+		public Die() {
+			set(0);
+		}
+
+		public void set(int value) {
+			this.value = value;
+			removeAll();
+			GRoundRect outline = new GRoundRect(0, 0, DICE_SIZE, DICE_SIZE, 2 * DICE_CORNER_RADIUS);
+			outline.setColor(PIP_COLOR);
+			outline.setFilled(true);
+			outline.setFillColor(highlighted ? PIP_COLOR : DIE_COLOR);
+			add(outline);
+			if (value == 0) {
+				GLabel questionMark = new GLabel("?");
+				questionMark.setColor(PIP_COLOR);
+				questionMark.setFont(QUESTION_MARK_FONT);
+				add(questionMark, (DICE_SIZE - questionMark.getWidth()) / 2, 
+						(DICE_SIZE + questionMark.getAscent()) / 2 - 1);
+				return;
+			}
+			for (int i = 0; i < PIPS[value].length; i += 2) {
+				double x = DICE_SIZE / 2 + PIP_OFFSET * (PIPS[value][i] - 1) * DICE_SIZE;
+				double y = DICE_SIZE / 2 + PIP_OFFSET * (PIPS[value][i + 1] - 1) * DICE_SIZE + 1;
+				GOval pip = new GOval(2 * PIP_RADIUS, 2 * PIP_RADIUS);
+				pip.setFilled(true);
+				pip.setColor(highlighted ? DIE_COLOR : PIP_COLOR);
+				add(pip, x - PIP_RADIUS, y - PIP_RADIUS);
+			}
+		}
+
+		public void setHighlighted(boolean highlighted) {
+			this.highlighted = highlighted;
+			set(value);
+		}
+
+		public boolean isHighlighted() {
+			return highlighted;
+		}
+
+		/* The column and row of each pip, from 0 to 2, per value */
+		private static final int[][] PIPS = {
+			{}, { 1, 1 }, { 2, 0, 0, 2 }, { 2, 0, 1, 1, 0, 2 }, { 0, 0, 0, 2, 2, 0, 2, 2 },
+			{ 0, 0, 0, 2, 1, 1, 2, 0, 2, 2 }, { 0, 0, 0, 1, 0, 2, 2, 0, 2, 1, 2, 2 }
+		};
+		private static final double PIP_OFFSET = 0.27;
+
+		private int value;
+		private boolean highlighted;
+
+	}
+
+	/* A button whose label is grayed out while it is disabled */
+	private static class Button extends GCompound {
+
+		public Button(String text) {
+			frame = new GRoundRect(BUTTON_WIDTH, BUTTON_HEIGHT);
+			frame.setFilled(true);
+			frame.setColor(Color.BLACK);
+			frame.setFillColor(Color.WHITE);
+			label = new GLabel("");
+			label.setFont(BUTTON_FONT);
+			add(frame);
+			add(label);
+			setLabel(text);
+			setEnabled(false);
+		}
+
+		public void setLabel(String text) {
+			label.setLabel(text);
+			label.setLocation((BUTTON_WIDTH - label.getWidth()) / 2, 
+					(BUTTON_HEIGHT + label.getAscent()) / 2 - 1);
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+			label.setColor(enabled ? Color.BLACK : Color.GRAY);
+		}
+
+		/**
+		 * Show the button pressed or released
+		 * @param pressed
+		 * @return whether the button is enabled, so that a release is a click
+		 */
+		public boolean setPressed(boolean pressed) {
+			if (!enabled) return false;
+			frame.setFillColor(pressed ? PIP_COLOR : Color.WHITE);
+			label.setColor(pressed ? Color.WHITE : Color.BLACK);
+			return true;
+		}
+
+		private GRoundRect frame;
+		private GLabel label;
+		private boolean enabled;
+
+	}
+
+	/* Private constants */
+	private static final int WAIT_FOR_ROLL = 1;
+	private static final int WAIT_FOR_REROLL = 2;
+	private static final int WAIT_FOR_CATEGORY = 3;
+
+	/* Private instance variables */
+	private Button rollButton;
+	private Die[] dice = new Die[N_DICE];
+	private VirtualScorecard scorecard;
+	private int columnsPerPlayer;
+	private int activeColumn;
+	private GLabel messageArea;
+	private volatile int mode;
+	private int pressedCategory = -1;
+	private int selectedCategory;
+	private int selectedColumn;
+	private boolean dirty;
+	private boolean done;
+
+}
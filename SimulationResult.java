@@ -0,0 +1,115 @@
+/*
+ * File: SimulationResult.java
+ * ---------------------------
+ * This class holds the outcome of a batch of simulated games: the
+ * distribution of the final scores and the time it took to play them.
+ */
+
+public class SimulationResult {
+
+	/**
+	 * Creates a result from a score histogram
+	 * @param histogram number of games for each final score
+	 * @param elapsedNanos wall clock time used for the simulation
+	 */
+	public SimulationResult(long[] histogram, long elapsedNanos) {
+		this.histogram = histogram;
+		this.elapsedNanos = elapsedNanos;
+		for (int score = 0; score < histogram.length; score++) {
+			games += histogram[score];
+			sum += histogram[score] * score;
+			sumOfSquares += histogram[score] * (double) score * score;
+		}
+	}
+
+	/**
+	 * Return the number of games played
+	 * @return
+	 */
+	public long getGames() {
+		return games;
+	}
+
+	/**
+	 * Return the number of games played per second
+	 * @return
+	 */
+	public double getGamesPerSecond() {
+		return games * 1e9 / Math.max(1, elapsedNanos);
+	}
+
+	/**
+	 * Return the average final score
+	 * @return
+	 */
+	public double getMean() {
+		return games == 0 ? 0 : (double) sum / games;
+	}
+
+	/**
+	 * Return the standard deviation of the final scores
+	 * @return
+	 */
+	public double getStandardDeviation() {
+		if (games == 0) return 0;
+		double mean = getMean();
+		return Math.sqrt(Math.max(0, sumOfSquares / games - mean * mean));
+	}
+
+	/**
+	 * Return the smallest score such that the given fraction of games 
+	 * scored at most that much
+	 * @param fraction between 0 and 1
+	 * @return
+	 */
+	public int getPercentile(double fraction) {
+		long limit = (long) Math.ceil(fraction * games);
+		long count = 0;
+		for (int score = 0; score < histogram.length; score++) {
+			count += histogram[score];
+			if (count >= limit && count > 0) return score;
+		}
+		return histogram.length - 1;
+	}
+
+	/**
+	 * Return the number of games that ended with the given score
+	 * @param score
+	 * @return
+	 */
+	public long getCount(int score) {
+		return histogram[score];
+	}
+
+	public String toString() {
+		String text = "games:     " + games + "\n";
+		text += "games/sec: " + Math.round(getGamesPerSecond()) + "\n";
+		text += "mean:      " + Math.round(getMean() * 100) / 100.0 
+				+ " (sd " + Math.round(getStandardDeviation() * 100) / 100.0 + ")\n";
+		text += "min/p10/p50/p90/p99/max: " + getPercentile(0) + "/" + getPercentile(0.1) + "/"
+				+ getPercentile(0.5) + "/" + getPercentile(0.9) + "/"
+				+ getPercentile(0.99) + "/" + getPercentile(1) + "\n";
+		text += "distribution:\n";
+		for (int from = 0; from < histogram.length; from += BUCKET_SIZE) {
+			long count = 0;
+			for (int score = from; score < from + BUCKET_SIZE && score < histogram.length; score++) {
+				count += histogram[score];
+			}
+			if (count > 0) {
+				text += "  " + from + "-" + (from + BUCKET_SIZE - 1) + ": " + count + "\n";
+			}
+		}
+		return text;
+	}
+
+	/* Private constants */
+	private static final int BUCKET_SIZE = 25;
+
+	/* Private instance variables */
+	private long[] histogram;
+	private long elapsedNanos;
+	private long games;
+	private long sum;
+	private double sumOfSquares;
+
+}
@@ -0,0 +1,69 @@
+/*
+ * File: SplitMix.java
+ * -------------------
+ * The SplitMix64 generator (as in java.util.SplittableRandom): a 64 bit
+ * counter advanced by an odd gamma and passed through a mixing function.
+ * It is not synchronized, so every game or thread uses its own instance,
+ * and the same seed always gives the same sequence.
+ */
+
+import java.util.concurrent.atomic.*;
+
+public class SplitMix implements DiceRandom {
+
+	/**
+	 * Creates a generator with a seed which differs for every instance
+	 */
+	public SplitMix() {
+		this(mix64(SEEDER.getAndAdd(2 * GOLDEN_GAMMA)) ^ mix64(System.nanoTime()));
+	}
+
+	/**
+	 * Creates a generator with an explicit seed, for reproducible runs
+	 * @param seed
+	 */
+	public SplitMix(long seed) {
+		this(seed, GOLDEN_GAMMA);
+	}
+
+	private SplitMix(long seed, long gamma) {
+		this.seed = seed;
+		this.gamma = gamma;
+	}
+
+	public long nextLong() {
+		seed += gamma;
+		return mix64(seed);
+	}
+
+	public DiceRandom split() {
+		long childSeed = nextLong();
+		seed += gamma;
+		return new SplitMix(childSeed, mixGamma(seed));
+	}
+
+	/* The finalizer of MurmurHash3 with the constants of David Stafford's variant 13 */
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	/* Return an odd gamma with enough bit transitions */
+	private static long mixGamma(long z) {
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		int transitions = Long.bitCount(z ^ (z >>> 1));
+		return transitions < 24 ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+	}
+
+	/* Private constants */
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	private static final AtomicLong SEEDER = new AtomicLong();
+
+	/* Private instance variables */
+	private long seed;
+	private long gamma;
+
+}
@@ -0,0 +1,33 @@
+/*
+ * File: TableListener.java
+ * ------------------------
+ * This interface receives what happens at a YahtzeeTable. It is called
+ * on the thread processing the table, one notification at a time.
+ */
+
+public interface TableListener {
+
+	/** A player has to roll the dice to start the turn */
+	public static final int TURN_STARTED = 1;
+
+	/** The dice have been rolled, the player may re-roll or score */
+	public static final int DICE_ROLLED = 2;
+
+	/** The player has scored the dice, the turn is over */
+	public static final int SCORED = 3;
+
+	/** All players have filled their scorecards */
+	public static final int GAME_OVER = 4;
+
+	/** An event was not allowed in the current phase of the game */
+	public static final int REJECTED = 5;
+
+	/**
+	 * Called for every change of the table
+	 * @param table
+	 * @param player the player concerned
+	 * @param what one of the constants above
+	 */
+	public void tableChanged(YahtzeeTable table, int player, int what);
+
+}
@@ -4,17 +4,16 @@
  * This program will eventually play the Yahtzee game.
  */
 
-import java.awt.event.MouseEvent;
 import java.io.*;
 import java.util.*;
 
 import acm.io.*;
 import acm.program.*;
-import acm.util.*;
 
 public class TrippleYahtzee extends GraphicsProgram implements YahtzeeConstants {
 
 	public void run() {
+		if (Metrics.ENABLED) Metrics.exportTo(new File(METRICS_FILE), METRICS_PERIOD);
 		showHighScores();
 		setupPlayers();
 		initDisplay();
@@ -25,68 +24,9 @@ public class TrippleYahtzee extends GraphicsProgram implements YahtzeeConstants
 	 * Show high scores of previous games
 	 */
 	private void showHighScores() {		
-		String text = "Highscores:\n";
-		loadHighScores();
-
-		if (highScoreNames.size() == 0) {
-			text += "none available yet";
-		} else {
-			for (int i = 0; i < highScoreNames.size(); i++) {
-				int value = highScoreValues.get(i);
-				if (value / 100 == 0) text += "  ";
-				if (value / 10 == 0) text += "  ";
-				text += value + " " + highScoreNames.get(i) + "\n";
-			}
-		}
-
+		highScores.load();
 		IODialog dialog = getDialog();
-		dialog.println(text);		
-	}
-
-	/**
-	 * load high scores from file
-	 */
-	private void loadHighScores() {
-		highScoreNames = new ArrayList<String>();
-		highScoreValues = new ArrayList<Integer>();
-		File file = new File(HIGHSCORE_FILE);
-		try {
-			Scanner scanner = new Scanner(new FileReader(file));
-			while (scanner.hasNextLine()) {
-				processHighScoresLine(scanner.nextLine());
-			}
-			scanner.close();
-		} catch (IOException ex) {
-			// don't care do nothing
-		}
-	}
-
-	/**
-	 * parse single line of high score file
-	 * @param line
-	 */
-	protected void processHighScoresLine(String line){
-		Scanner scanner = new Scanner(line);
-		scanner.useDelimiter("=");
-		if (scanner.hasNext()) {
-			highScoreValues.add(new Integer(scanner.next()));
-			highScoreNames.add(scanner.next());
-		}
-	}
-
-	/** 
-	 * save high scores to file
-	 */
-	private void saveHighScores() {
-		try {
-			PrintWriter printWriter = new PrintWriter(new FileWriter(HIGHSCORE_FILE));
-			for (int i = 0; i < highScoreNames.size(); i++) {
-				printWriter.println(highScoreValues.get(i) + "=" + highScoreNames.get(i));
-			}
-			printWriter.close();
-		} catch (IOException ex) {
-			throw new ErrorException(ex);
-		}
+		dialog.println(highScores.format());		
 	}
 
 	/**
@@ -94,47 +34,13 @@ public class TrippleYahtzee extends GraphicsProgram implements YahtzeeConstants
 	 * @return
 	 */
 	private boolean newHighScore() {
-		boolean fileNeedsUpdate = false;
+		boolean newHighScore = false;
 		for (int player = 0; player < nPlayers; player++) {
-			boolean newHighScore = false;
-			int total = 0; 
-			for (int col = 0; col < COLS_PER_PLAYER; col++) {
-				total += totalScore[player][col];
-			}
-			for (int i = highScoreNames.size() - 1; i >= 0; i--) {				
-				if (highScoreValues.get(i).intValue() <= total) {
-					newHighScore = true;
-					fileNeedsUpdate = true;
-					if (i == 0) {
-						addHighScore(i, player, total);
-					}
-				} else {
-					if (newHighScore) {
-						addHighScore(i + 1, player, total);						
-					}
-					break;
-				}
-
+			if (highScores.record(playerNames[player], RULES.totalScore(columnStates, player))) {
+				newHighScore = true;
 			}
 		}
-		if (fileNeedsUpdate) saveHighScores();
-
-		return fileNeedsUpdate;
-	}
-
-	/**
-	 * add a highscore from player at given position 
-	 * @param i
-	 * @param player
-	 * @param total
-	 */
-	private void addHighScore(int i, int player, int total) {
-		highScoreNames.add(i, playerNames[player]);
-		highScoreValues.add(i, new Integer(total));
-		if (highScoreNames.size() > N_HIGHSCORES) {
-			highScoreNames.remove(N_HIGHSCORES);
-			highScoreValues.remove(N_HIGHSCORES);
-		}
+		return newHighScore;
 	}
 
 	/**
@@ -180,7 +86,8 @@ public class TrippleYahtzee extends GraphicsProgram implements YahtzeeConstants
 	}
 
 	/**
-	 * Sets up the YahtzeeDisplay associated with this game.
+	 * Sets up the display with one scorecard column per player and column
+	 * of the game; the scorecard maps clicks to their column itself.
 	 */
 	private void initDisplay() {
 		String[] colNames = new String[nPlayers * COLS_PER_PLAYER];
@@ -189,7 +96,22 @@ public class TrippleYahtzee extends GraphicsProgram implements YahtzeeConstants
 				colNames[i * COLS_PER_PLAYER + j] = playerNames[i] + "*" + (j + 1);
 			}
 		}		
-		display = new YahtzeeDisplay(getGCanvas(), colNames);
+		display = new ScrollingView(getGCanvas(), colNames, COLS_PER_PLAYER);
+		initAdvisor();
+	}
+
+	/**
+	 * Open the advisor for hints if hints are enabled and the column tables
+	 * computed by TrippleYahtzeeSolver are available.
+	 */
+	private void initAdvisor() {
+		File file = new File(TrippleYahtzeeSolver.EV_TABLE_FILE);
+		if (!SHOW_HINTS || !file.exists()) return;
+		try {
+			advisor = TrippleYahtzeeAdvisor.open(file);
+		} catch (IOException ex) {
+			// play without hints
+		}
 	}
 
 	/**
@@ -197,27 +119,36 @@ public class TrippleYahtzee extends GraphicsProgram implements YahtzeeConstants
 	 * implementation.
 	 */
 	private void playGame() {
-		usedCategories = new boolean[nPlayers][COLS_PER_PLAYER][N_CATEGORIES];
-		upperScore = new int[nPlayers][COLS_PER_PLAYER];
-		lowerScore = new int[nPlayers][COLS_PER_PLAYER];
-		totalScore = new int[nPlayers][COLS_PER_PLAYER];
-		allowAdditionalYahtzees = new boolean[nPlayers][COLS_PER_PLAYER];
-		for (int player = 0; player < nPlayers; player++) {
-			for (int col = 0; col < COLS_PER_PLAYER; col++) {
-				allowAdditionalYahtzees[player][col] = true;
-			}			
-		}		
+		columnStates = new long[nPlayers * COLS_PER_PLAYER];
+		Arrays.fill(columnStates, YahtzeeState.INITIAL);
+		openJournal();
+		if (journal != null) journal.startGame(nPlayers, COLS_PER_PLAYER);
 
 		for (int round = 0; round < N_SCORING_CATEGORIES * COLS_PER_PLAYER; round++) {
 			for (int player = 0; player < nPlayers; player++) {	
 				firstRoll(player);
 				for (int roll = 1; roll < N_ROLLS; roll++) {					
-					furtherRoll();
+					furtherRoll(player, roll);
 				}
 				updateScore(player);
 			}
 		}
 		findWinner();
+		if (journal != null) {
+			journal.endGame();
+			journal.close();
+		}
+	}
+
+	/**
+	 * Open the journal recording the rolls and scores of the game
+	 */
+	private void openJournal() {
+		try {
+			journal = GameJournal.open(new File(JOURNAL_FILE));
+		} catch (IOException ex) {
+			// play without a journal
+		}
 	}
 
 	/**
@@ -229,10 +160,7 @@ public class TrippleYahtzee extends GraphicsProgram implements YahtzeeConstants
 		String next = "";
 		int winningScore = 0;
 		for (int player = 0; player < nPlayers; player++) {
-			int total = 0; 
-			for (int col = 0; col < COLS_PER_PLAYER; col++) {
-				total += totalScore[player][col];
-			}
+			int total = RULES.totalScore(columnStates, player);
 			if (total == winningScore) {
 				winner += next + playerNames[player];
 			} else if (total > winningScore) {
@@ -256,173 +184,62 @@ public class TrippleYahtzee extends GraphicsProgram implements YahtzeeConstants
 	private void updateScore(int player) {
 		int category;
 		int col;
-		addMouseListeners();
-		
 		while (true) {
-			display.printMessage("Select a category for this roll.");
-			category = display.waitForPlayerToSelectCategory();
-			col = COLS_PER_PLAYER - 1;
-			for(int i = 0; i < COLS_PER_PLAYER; i++) {
-				if (xMouseClick <= X_FIRST_COL + X_SIZE_COL * (1 + i + COLS_PER_PLAYER * player)) {
-					col = i;
-					break;
-				}
-			}
-			if (!usedCategories[player][col][category]) break;			
-		}
-		usedCategories[player][col][category] = true;
-
-		int score = calculateScore(category) * (col + 1);
-
-		if (category == YAHTZEE) {
-			if (score == 0) {
-				allowAdditionalYahtzees[player][col] = false;
-			}			
-		} else {
-			if (allowAdditionalYahtzees[player][col] 
-			    && usedCategories[player][col][YAHTZEE] 
-			    && (calculateOfAKindValues(5) > 0)) {
-				score += SCORE_ADDITONAL_YAHTZEES;
+			String message = "Select a category for this roll.";
+			if (advisor != null) {
+				message += " " + TrippleYahtzeeAdvisor.choiceHint(
+						advisor.bestChoice(dice, columnStates, player * COLS_PER_PLAYER));
 			}
+			display.printMessage(message);
+			long start = System.nanoTime();
+			category = display.waitForPlayerToSelectCategory();
+			if (Metrics.ENABLED) CATEGORY_WAIT.record(Metrics.micros(start));
+			col = display.getSelectedColumn() % COLS_PER_PLAYER;
+			if (!YahtzeeState.isUsed(columnStates[col + player * COLS_PER_PLAYER], category)) break;			
 		}
 
 		int scoreIndex = col + player * COLS_PER_PLAYER;
-		display.updateScorecard(category, scoreIndex, score);
+		int multiplier = RULES.getMultiplier(col);
+		int rollIndex = RULES.indexOf(dice);
+		long state = columnStates[scoreIndex];
+		int score = RULES.categoryScore(state, rollIndex, category, multiplier);
+		state = RULES.score(state, rollIndex, category, multiplier);
+		columnStates[scoreIndex] = state;
+
+		updateScorecard(category, scoreIndex, score);
+		if (journal != null) journal.score(player, col, category, score);
 		
 		if (category < UPPER_SCORE) {
-			upperScore[player][col] += score;
-			display.updateScorecard(UPPER_SCORE, scoreIndex, upperScore[player][col]);
+			updateScorecard(UPPER_SCORE, scoreIndex, YahtzeeState.upperScore(state));
 		} else {
-			lowerScore[player][col] += score;
-			display.updateScorecard(LOWER_SCORE, scoreIndex, lowerScore[player][col]);
+			updateScorecard(LOWER_SCORE, scoreIndex, YahtzeeState.lowerScore(state));
 		}
-		totalScore[player][col] = upperScore[player][col] + lowerScore[player][col];
 
-		if (upperScore[player][col] >= SCORE_UPPER_BONUS_LIMIT * (col + 1)) {
-			display.updateScorecard(UPPER_BONUS, scoreIndex, SCORE_UPPER_BONUS * (col + 1));
-			totalScore[player][col] += SCORE_UPPER_BONUS * (col + 1);
+		if (YahtzeeState.hasUpperBonus(state, multiplier)) {
+			updateScorecard(UPPER_BONUS, scoreIndex, SCORE_UPPER_BONUS * multiplier);
 		}
 
 		for (col = 0; col < COLS_PER_PLAYER; col++) {
-			display.updateScorecard(TOTAL, col + player * COLS_PER_PLAYER, totalScore[player][col]);			
+			scoreIndex = col + player * COLS_PER_PLAYER;
+			updateScorecard(TOTAL, scoreIndex, YahtzeeState.totalScore(columnStates[scoreIndex], 
+					RULES.getMultiplier(col)));			
 		}
-	}
-
-	public void mousePressed(MouseEvent e) {
-		xMouseClick = e.getX();
-	}
-	
-	/**
-	 * Calculate the score of a chosen category and return the result
-	 * @param category
-	 * @return
-	 */
-	private int calculateScore(int category) {
-		int score = 0;
-		switch (category) {
-		case ONES: 
-			score = calculateSingleValues(1);
-			break;
-		case TWOS: 
-			score = calculateSingleValues(2);
-			break;
-		case THREES: 
-			score = calculateSingleValues(3);
-			break;
-		case FOURS: 
-			score = calculateSingleValues(4);
-			break;
-		case FIVES: 
-			score = calculateSingleValues(5);
-			break;
-		case SIXES:
-			score = calculateSingleValues(6);
-			break;
-		case THREE_OF_A_KIND:
-			score = calculateOfAKindValues(3);
-			break;
-		case FOUR_OF_A_KIND:
-			score = calculateOfAKindValues(4);
-			break;
-		case YAHTZEE:
-			score = calculateOfAKindValues(5);
-			break;
-		case CHANCE:
-			score = calculateOfAKindValues(0);
-			break;
-		case FULL_HOUSE:
-			score = calculateOfAKindValues(FULL_HOUSE);
-			break;
-		case SMALL_STRAIGHT:
-			score = calculateOfAKindValues(SMALL_STRAIGHT);
-			break;
-		case LARGE_STRAIGHT:
-			score = calculateOfAKindValues(LARGE_STRAIGHT);
-			break;			
-		default:
-			break;
+		display.flushScorecard();
+		if (Metrics.ENABLED) {
+			SCORECARD_UPDATES.record(scorecardUpdates);
+			scorecardUpdates = 0;
 		}
-		return score;
 	}
 
 	/**
-	 * Calculate the score a given number of equal faces and return the result
-	 * @param number
-	 * @return
-	 */
-	private int calculateOfAKindValues(int number) {
-		int result = 0;
-		int value[] = new int[N_FACES];
-		boolean isNumber = false;
-		for (int i = 0; i < N_DICE; i++) {
-			result += dice[i];
-			if (++value[dice[i] - 1] >= number) isNumber = true;
-		}
-		if (number == FULL_HOUSE) {
-			boolean found2 = false;
-			boolean found3 = false;
-			for (int i = 0; i < N_FACES; i ++) {
-				if (value[i] == 2) found2 = true;
-				if (value[i] == 3) found3 = true;				
-			}
-			if (found2 && found3) return SCORE_FULL_HOUSE;
-		} else if ((number == SMALL_STRAIGHT) || (number == LARGE_STRAIGHT)) {
-			int consecutives = 0;
-			int maxConsecutives = 0;
-			int previous = -1;
-			for (int i = 0; i < N_FACES; i ++) {
-				if ((value[i] > 0) && (i == previous + 1)) {
-					consecutives++;
-					if (consecutives > maxConsecutives) 
-						maxConsecutives = consecutives;
-				} else {
-					consecutives = 0;
-				}
-				previous = i;
-			}
-			if ((number == SMALL_STRAIGHT) && (maxConsecutives >= 4)) {
-				return SCORE_SMALL_STRAIGHT;
-			} else if ((number == LARGE_STRAIGHT) && (maxConsecutives == 5)) {
-				return SCORE_LARGE_STRAIGHT;
-			}
-
-		}
-		if (!isNumber) return 0;
-		if (number == 5) return SCORE_YAHTZEE;
-		return result;
-	}
-
-	/** 
-	 * Calculate the score for given face value and return the result
-	 * @param value
-	 * @return
+	 * Update a cell of the scorecard, counting the updates of a turn
+	 * @param category
+	 * @param column
+	 * @param score
 	 */
-	private int calculateSingleValues(int value) {
-		int result = 0;
-		for (int i = 0; i < N_DICE; i++) {
-			if (dice[i] == value) result += value;
-		}		
-		return result;
+	private void updateScorecard(int category, int column, int score) {
+		display.updateScorecard(category, column, score);
+		scorecardUpdates++;
 	}
 
 	/**
@@ -432,17 +249,28 @@ public class TrippleYahtzee extends GraphicsProgram implements YahtzeeConstants
 	private void firstRoll(int player) {
 		String playerName = playerNames[player];				
 		display.printMessage(playerName + "'s turn. Click \"Roll Dice\" button to roll the dice.");
+		long start = System.nanoTime();
 		display.waitForPlayerToClickRoll(player * COLS_PER_PLAYER);
+		if (Metrics.ENABLED) ROLL_WAIT.record(Metrics.micros(start));
 		rollDice(true);
 		display.displayDice(dice);		
 	}
 
 	/** 
 	 * Handle consecutive rolls of dice
+	 * @param player
+	 * @param roll the number of rolls already made
 	 */
-	private void furtherRoll() {
-		display.printMessage("Select the dice you which to re-roll and click \"Roll Again\".");
+	private void furtherRoll(int player, int roll) {
+		String message = "Select the dice you which to re-roll and click \"Roll Again\".";
+		if (advisor != null) {
+			message += " " + YahtzeeAdvisor.rerollHint(advisor.bestReroll(dice, N_ROLLS - roll, 
+					columnStates, player * COLS_PER_PLAYER));
+		}
+		display.printMessage(message);
+		long start = System.nanoTime();
 		display.waitForPlayerToSelectDice();
+		if (Metrics.ENABLED) DICE_WAIT.record(Metrics.micros(start));
 		rollDice(false);
 		display.displayDice(dice);
 	}
@@ -452,46 +280,44 @@ public class TrippleYahtzee extends GraphicsProgram implements YahtzeeConstants
 	 * @param reRollAll
 	 */
 	private void rollDice(boolean reRollAll) {
-		//int allSameValue = rgen.nextInt(1, N_FACES);
+		int rerollMask = 0;
 		for (int i = 0; i < N_DICE; i++) {
 			if (reRollAll || display.isDieSelected(i)) {
-				dice[i] = rgen.nextInt(1, N_FACES);
-				//dice[i] = allSameValue;
+				rerollMask |= 1 << i;
 			}				
 		}
+		RULES.rollDice(dice, rerollMask, rgen);
+		if (journal != null) journal.roll(rerollMask, dice);
 	}
 
 	/* Private constants */
-	private static final int N_ROLLS = 3;
-	private static final int N_FACES = 6;
-	private static final int SCORE_FULL_HOUSE = 25;
-	private static final int SCORE_SMALL_STRAIGHT = 30;
-	private static final int SCORE_LARGE_STRAIGHT = 40;
-	private static final int SCORE_YAHTZEE = 50;
-	private static final int SCORE_UPPER_BONUS_LIMIT = 63;
-	private static final int SCORE_UPPER_BONUS = 35;
+	private static final YahtzeeEngine RULES = YahtzeeEngine.TRIPPLE;
+	private static final int N_ROLLS = RULES.getRollCount();
+	private static final int SCORE_UPPER_BONUS = YahtzeeRules.SCORE_UPPER_BONUS;
 	private static final String HIGHSCORE_FILE = "HighScores.txt";
 	private static final int N_HIGHSCORES = 10;
-	private static final int SCORE_ADDITONAL_YAHTZEES = 100;
+	private static final String JOURNAL_FILE = "Games.journal";
+	private static final boolean SHOW_HINTS = true;
+	private static final String METRICS_FILE = "Metrics.txt";
+	private static final long METRICS_PERIOD = 10000;
+	private static final Histogram ROLL_WAIT = Metrics.histogram("wait.roll.us");
+	private static final Histogram DICE_WAIT = Metrics.histogram("wait.dice.us");
+	private static final Histogram CATEGORY_WAIT = Metrics.histogram("wait.category.us");
+	private static final Histogram SCORECARD_UPDATES = Metrics.histogram("scorecard.updatesPerTurn");
 	
-	private static final int COLS_PER_PLAYER = 3;
-	private static final int X_FIRST_COL = 252;
-	private static final int X_SIZE_COL = 65;
+	private static final int COLS_PER_PLAYER = RULES.getColumnCount();
 
 
 	/* Private instance variables */
 	private int nPlayers;
 	private String[] playerNames;
-	private YahtzeeDisplay display;
-	private RandomGenerator rgen = new RandomGenerator();
+	private ScrollingView display;
+	private TrippleYahtzeeAdvisor advisor;
+	private DiceRandom rgen = new SplitMix();
 	private int[] dice = new int[N_DICE];
-	private boolean[][][] usedCategories;
-	private int[][] upperScore;
-	private int[][] lowerScore;
-	private int[][] totalScore;
-	private ArrayList<String> highScoreNames;
-	private ArrayList<Integer> highScoreValues;
-	private boolean[][] allowAdditionalYahtzees;
-	private int xMouseClick;
+	private long[] columnStates;
+	private HighScores highScores = new HighScores(HIGHSCORE_FILE, N_HIGHSCORES);
+	private GameJournal journal;
+	private int scorecardUpdates;
 
 }
@@ -0,0 +1,179 @@
+/*
+ * File: TrippleYahtzeeAdvisor.java
+ * --------------------------------
+ * This class suggests the best move for a TrippleYahtzee player using
+ * the column tables of TrippleYahtzeeSolver. A position is valued as
+ * the sum of the values of its columns, so scoring a roll is worth the
+ * score plus the change of the value of the column it is written to.
+ */
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+public class TrippleYahtzeeAdvisor implements YahtzeeConstants {
+
+	/**
+	 * Open the tables written by TrippleYahtzeeSolver
+	 * @param file
+	 * @return
+	 */
+	public static TrippleYahtzeeAdvisor open(File file) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = in.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new TrippleYahtzeeAdvisor(TrippleYahtzeeSolver.checkedTables(buffer, file));
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Creates an advisor on top of the column tables
+	 * @param tables values of each column indexed by YahtzeeSolver.stateIndex(state, multiplier)
+	 */
+	public TrippleYahtzeeAdvisor(FloatBuffer[] tables) {
+		this.tables = tables;
+	}
+
+	/**
+	 * Return the dice which should be rolled again
+	 * @param dice the current dice
+	 * @param rollsLeft the number of rolls left in this turn
+	 * @param columnStates the packed scorecards of the columns, see YahtzeeState
+	 * @param offset the index of the first column of the player
+	 * @return bit mask of the dice to roll again, 0 to keep all dice
+	 */
+	public int bestReroll(int[] dice, int rollsLeft, long[] columnStates, int offset) {
+		if (rollsLeft <= 0) return 0;
+		Scratch scratch = this.scratch.get();
+		double[] rollValues = scratch.rollValues;
+		Arrays.fill(rollValues, Double.NEGATIVE_INFINITY);
+		for (int column = 0; column < tables.length; column++) {
+			long state = columnStates[offset + column];
+			if (YahtzeeState.isFinished(state)) continue;
+			YahtzeeSolver.scoreRolls(tables[column], state, multiplier(column), scratch.columnValues);
+			double current = columnValue(column, state);
+			for (int roll = 0; roll < DiceMultisets.N_ROLLS; roll++) {
+				double value = scratch.columnValues[roll] - current;
+				if (value > rollValues[roll]) rollValues[roll] = value;
+			}
+		}
+		for (int level = 1; level < rollsLeft; level++) {
+			YahtzeeSolver.expectKeeps(rollValues, scratch.keepValues);
+			YahtzeeSolver.chooseKeeps(scratch.keepValues, rollValues);
+		}
+
+		int bestMask = 0;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int rerollMask = 0; rerollMask <= YahtzeeRules.ALL_DICE; rerollMask++) {
+			int keep = DiceMultisets.keepIndexOf(dice, rerollMask);
+			double value = KeepTransitions.expectedValue(keep, rollValues);
+			if (value > bestValue + EPSILON) {
+				bestMask = rerollMask;
+				bestValue = value;
+			}
+		}
+		return bestMask;
+	}
+
+	/**
+	 * Return the column and category the dice should be scored in
+	 * @param dice the final dice of the turn
+	 * @param columnStates the packed scorecards of the columns, see YahtzeeState
+	 * @param offset the index of the first column of the player
+	 * @return the choice, see columnOf and categoryOf
+	 */
+	public int bestChoice(int[] dice, long[] columnStates, int offset) {
+		int roll = DiceMultisets.rollIndexOf(dice);
+		int bestChoice = -1;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int column = 0; column < tables.length; column++) {
+			long state = columnStates[offset + column];
+			double current = columnValue(column, state);
+			for (int i = 0; i < N_SCORING_CATEGORIES; i++) {
+				int category = YahtzeeSolver.SCORING_CATEGORIES[i];
+				if (YahtzeeState.isUsed(state, category)) continue;
+				double value = YahtzeeSolver.categoryValue(tables[column], state, roll, category, 
+						multiplier(column)) - current;
+				if (value > bestValue) {
+					bestChoice = column * N_CATEGORIES + category;
+					bestValue = value;
+				}
+			}
+		}
+		return bestChoice;
+	}
+
+	/**
+	 * Return the column of a choice returned by bestChoice
+	 * @param choice
+	 * @return
+	 */
+	public static int columnOf(int choice) {
+		return choice / N_CATEGORIES;
+	}
+
+	/**
+	 * Return the category of a choice returned by bestChoice
+	 * @param choice
+	 * @return
+	 */
+	public static int categoryOf(int choice) {
+		return choice % N_CATEGORIES;
+	}
+
+	/**
+	 * Return the expected score of the remaining turns of a player at the
+	 * start of a turn
+	 * @param columnStates the packed scorecards of the columns, see YahtzeeState
+	 * @param offset the index of the first column of the player
+	 * @return
+	 */
+	public double expectedScore(long[] columnStates, int offset) {
+		double value = 0;
+		for (int column = 0; column < tables.length; column++) {
+			value += columnValue(column, columnStates[offset + column]);
+		}
+		return value;
+	}
+
+	/**
+	 * Return a hint naming the column and category to score in
+	 * @param choice
+	 * @return
+	 */
+	public static String choiceHint(int choice) {
+		String hint = YahtzeeAdvisor.categoryHint(categoryOf(choice));
+		return hint.substring(0, hint.length() - 1) + " in column *" + (columnOf(choice) + 1) + ".";
+	}
+
+	private static int multiplier(int column) {
+		return YahtzeeEngine.TRIPPLE.getMultiplier(column);
+	}
+
+	private double columnValue(int column, long state) {
+		return tables[column].get(YahtzeeSolver.stateIndex(state, multiplier(column)));
+	}
+
+	/* Scratch arrays, one set per thread */
+	private static class Scratch {
+		double[] columnValues = new double[DiceMultisets.N_ROLLS];
+		double[] rollValues = new double[DiceMultisets.N_ROLLS];
+		double[] keepValues = new double[DiceMultisets.N_KEEPS];
+	}
+
+	/* Private constants */
+	private static final double EPSILON = 1e-9;
+
+	/* Private instance variables */
+	private FloatBuffer[] tables;
+	private ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	};
+
+}
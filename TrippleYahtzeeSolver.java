@@ -0,0 +1,132 @@
+/*
+ * File: TrippleYahtzeeSolver.java
+ * -------------------------------
+ * This program computes expected values for TrippleYahtzee. Solving the
+ * 39 boxes of a player at once is far out of reach, so the scorecard is
+ * split into its columns: each column is a game of solitaire Yahtzee 
+ * with all scores and the bonus limit multiplied by the multiplier of
+ * the column in YahtzeeEngine.TRIPPLE, and is solved by 
+ * YahtzeeSolver on its own. A player's position is valued as the sum
+ * of the values of its columns, see TrippleYahtzeeAdvisor.
+ *
+ * The tables of the columns are kept in direct buffers outside of the
+ * heap and written to one file: MAGIC, VERSION, the number of columns
+ * and then the table of each column, tableSize(multiplier) floats each.
+ */
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.concurrent.*;
+
+public class TrippleYahtzeeSolver {
+
+	/**
+	 * Compute the tables of all columns and save them
+	 * usage: TrippleYahtzeeSolver [file]
+	 * @param args
+	 */
+	public static void main(String[] args) throws IOException {
+		File file = new File(args.length > 0 ? args[0] : EV_TABLE_FILE);
+		long start = System.nanoTime();
+		ByteBuffer[] tables = solve(Runtime.getRuntime().availableProcessors());
+		long elapsed = System.nanoTime() - start;
+		save(tables, file);
+		double total = 0;
+		for (int column = 0; column < N_COLUMNS; column++) {
+			float value = tables[column].asFloatBuffer().get(
+					YahtzeeSolver.stateIndex(YahtzeeState.INITIAL, RULES.getMultiplier(column)));
+			System.out.println("column *" + (column + 1) + ": " + value);
+			total += value;
+		}
+		System.out.println("expected score: " + total);
+		System.out.println("solved in " + elapsed / 1000000 + " ms, saved to " + file);
+	}
+
+	/**
+	 * Compute the table of every column in direct buffers
+	 * @param parallelism number of threads to use
+	 * @return the table of each column, as floats indexed by YahtzeeSolver.stateIndex
+	 */
+	public static ByteBuffer[] solve(int parallelism) {
+		ByteBuffer[] tables = new ByteBuffer[N_COLUMNS];
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+		try {
+			for (int column = 0; column < N_COLUMNS; column++) {
+				tables[column] = ByteBuffer.allocateDirect(YahtzeeSolver.tableSize(RULES.getMultiplier(column)) * 4);
+				YahtzeeSolver.solve(tables[column].asFloatBuffer(), RULES.getMultiplier(column), pool);
+			}
+		} finally {
+			pool.shutdown();
+		}
+		return tables;
+	}
+
+	/**
+	 * Save the tables to a file, replacing it only once it is complete
+	 * @param tables
+	 * @param file
+	 */
+	public static void save(ByteBuffer[] tables, File file) throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+		RandomAccessFile out = new RandomAccessFile(temp, "rw");
+		try {
+			out.setLength(0);
+			FileChannel channel = out.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(VERSION).putInt(tables.length).flip();
+			while (header.hasRemaining()) channel.write(header);
+			for (int column = 0; column < tables.length; column++) {
+				ByteBuffer buffer = tables[column].duplicate();
+				buffer.clear();
+				while (buffer.hasRemaining()) channel.write(buffer);
+			}
+			channel.force(true);
+		} finally {
+			out.close();
+		}
+		if (!temp.renameTo(file)) {
+			file.delete();
+			if (!temp.renameTo(file)) throw new IOException("cannot rename " + temp + " to " + file);
+		}
+	}
+
+	/**
+	 * Check the header of saved tables and return a view of each column
+	 * @param buffer contents of the file
+	 * @param file used for error messages
+	 * @return
+	 */
+	static FloatBuffer[] checkedTables(ByteBuffer buffer, File file) throws IOException {
+		long size = HEADER_SIZE;
+		for (int column = 0; column < N_COLUMNS; column++) {
+			size += YahtzeeSolver.tableSize(RULES.getMultiplier(column)) * 4L;
+		}
+		if (buffer.remaining() != size
+		    || buffer.getInt() != MAGIC || buffer.getInt() != VERSION 
+		    || buffer.getInt() != N_COLUMNS) {
+			throw new IOException(file + " is not a valid TrippleYahtzee table");
+		}
+		FloatBuffer[] tables = new FloatBuffer[N_COLUMNS];
+		for (int column = 0; column < N_COLUMNS; column++) {
+			ByteBuffer slice = buffer.slice();
+			slice.limit(YahtzeeSolver.tableSize(RULES.getMultiplier(column)) * 4);
+			tables[column] = slice.asFloatBuffer();
+			buffer.position(buffer.position() + slice.limit());
+		}
+		return tables;
+	}
+
+	/** The file the tables are stored in */
+	public static final String EV_TABLE_FILE = "TrippleYahtzeeEV.dat";
+
+	/** The number of score columns per player */
+	public static final int N_COLUMNS = YahtzeeEngine.TRIPPLE.getColumnCount();
+
+	/* Private constants */
+	private static final YahtzeeEngine RULES = YahtzeeEngine.TRIPPLE;
+	private static final int MAGIC = 0x59545a33;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 12;
+
+}
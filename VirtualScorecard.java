@@ -0,0 +1,226 @@
+/*
+ * File: VirtualScorecard.java
+ * ---------------------------
+ * This class draws a scorecard with any number of columns. The scores 
+ * are kept in one int array instead of one graphics object per cell, 
+ * and only the columns that fit into the window are painted, so the
+ * cost of a repaint does not depend on the number of columns. The 
+ * header cell of the category names scrolls a page of columns to the
+ * left or right when clicked on its left or right half.
+ */
+
+import java.awt.*;
+import java.util.*;
+
+import acm.graphics.*;
+
+public class VirtualScorecard extends GObject implements ScrollingDisplayConstants {
+
+	/**
+	 * Creates a scorecard 
+	 * @param columnNames one column per name
+	 * @param visibleColumns how many columns fit into the window
+	 */
+	public VirtualScorecard(String[] columnNames, int visibleColumns) {
+		this.columnNames = columnNames.clone();
+		nColumns = columnNames.length;
+		this.visibleColumns = Math.max(1, Math.min(visibleColumns, nColumns));
+		scores = new int[nColumns * N_CATEGORIES];
+		Arrays.fill(scores, EMPTY);
+	}
+
+	/**
+	 * Set the score shown in a cell, the scorecard is repainted by repaintScores
+	 * @param category
+	 * @param column
+	 * @param score
+	 */
+	public void setScore(int category, int column, int score) {
+		scores[column * N_CATEGORIES + category] = score;
+	}
+
+	/**
+	 * Return the score shown in a cell, EMPTY if there is none
+	 * @param category
+	 * @param column
+	 * @return
+	 */
+	public int getScore(int category, int column) {
+		return scores[column * N_CATEGORIES + category];
+	}
+
+	/**
+	 * Repaint the scorecard after changes of scores
+	 */
+	public void repaintScores() {
+		repaint();
+	}
+
+	/**
+	 * Highlight the header of a column, -1 for none, and scroll it into view
+	 * @param column
+	 */
+	public void setActiveColumn(int column) {
+		activeColumn = column;
+		if (column >= 0 && (column < firstColumn || column >= firstColumn + visibleColumns)) {
+			firstColumn = column / visibleColumns * visibleColumns;
+		}
+		repaint();
+	}
+
+	/**
+	 * Highlight a category in all columns, -1 for none
+	 * @param category
+	 */
+	public void setHighlightedCategory(int category) {
+		highlightedCategory = category;
+		repaint();
+	}
+
+	/**
+	 * Change how many columns are shown, after the window has been resized.
+	 * The first column shown stays, unless the last page would not be full.
+	 * @param visibleColumns how many columns fit into the window
+	 */
+	public void setVisibleColumns(int visibleColumns) {
+		this.visibleColumns = Math.max(1, Math.min(visibleColumns, nColumns));
+		firstColumn = Math.max(0, Math.min(firstColumn, nColumns - this.visibleColumns));
+		repaint();
+	}
+
+	/**
+	 * Scroll by a number of pages, negative to the left
+	 * @param pages
+	 */
+	public void scroll(int pages) {
+		int last = Math.max(0, nColumns - visibleColumns);
+		firstColumn = Math.max(0, Math.min(last, firstColumn + pages * visibleColumns));
+		repaint();
+	}
+
+	/**
+	 * Return the category of the row at a y coordinate of the canvas, 
+	 * -1 for the header or outside
+	 * @param y
+	 * @return
+	 */
+	public int categoryAt(double y) {
+		double row = y - getY() - PLAYER_HEIGHT;
+		if (row < 0) return -1;
+		int category = (int) (row / CATEGORY_HEIGHT);
+		return category < N_CATEGORIES ? category : -1;
+	}
+
+	/**
+	 * Return the column at an x coordinate of the canvas, -1 for the 
+	 * category names or outside
+	 * @param x
+	 * @return
+	 */
+	public int columnAt(double x) {
+		double offset = x - getX() - CATEGORY_WIDTH;
+		if (offset < 0) return -1;
+		int column = firstColumn + (int) (offset / PLAYER_WIDTH);
+		return column < firstColumn + visibleColumns ? column : -1;
+	}
+
+	/**
+	 * Return whether a point of the canvas is on the scroll control
+	 * @param x
+	 * @param y
+	 * @return -1 to scroll left, 1 to scroll right, 0 if not on it
+	 */
+	public int scrollDirectionAt(double x, double y) {
+		if (nColumns == visibleColumns) return 0;
+		double left = x - getX();
+		if (y - getY() >= PLAYER_HEIGHT || left < 0 || left >= CATEGORY_WIDTH) return 0;
+		return left < CATEGORY_WIDTH / 2 ? -1 : 1;
+	}
+
+	public GRectangle getBounds() {
+		return new GRectangle(getX(), getY(), CATEGORY_WIDTH + visibleColumns * PLAYER_WIDTH, 
+				PLAYER_HEIGHT + N_CATEGORIES * CATEGORY_HEIGHT);
+	}
+
+	public void paint(Graphics g) {
+		int x = (int) Math.round(getX());
+		int y = (int) Math.round(getY());
+		int lastColumn = Math.min(nColumns, firstColumn + visibleColumns);
+		paintHeader(g, x, y, lastColumn);
+		for (int category = 0; category < N_CATEGORIES; category++) {
+			int rowY = y + PLAYER_HEIGHT + category * CATEGORY_HEIGHT;
+			boolean fixed = !YahtzeeEngine.isScoringCategory(category);
+			Color background = category == highlightedCategory ? STANDARD_HIGHLIGHT
+					: fixed ? FIXED_CATEGORY_BACKGROUND : CATEGORY_BACKGROUND;
+			Color text = fixed ? FIXED_CATEGORY_TEXT : CATEGORY_TEXT;
+			paintCell(g, x, rowY, CATEGORY_WIDTH, CATEGORY_HEIGHT, background);
+			g.setColor(text);
+			g.setFont(CATEGORY_FONT);
+			drawText(g, CATEGORY_NAMES[category], x + (fixed ? SCORECARD_MARGIN : CATEGORY_INDENT), 
+					rowY, CATEGORY_HEIGHT);
+			g.setFont(fixed ? FIXED_SCORE_FONT : SCORE_FONT);
+			for (int column = firstColumn; column < lastColumn; column++) {
+				int cellX = x + CATEGORY_WIDTH + (column - firstColumn) * PLAYER_WIDTH;
+				paintCell(g, cellX, rowY, PLAYER_WIDTH, CATEGORY_HEIGHT, background);
+				int score = scores[column * N_CATEGORIES + category];
+				if (score != EMPTY) {
+					String label = Integer.toString(score);
+					g.setColor(text);
+					drawText(g, label, cellX + PLAYER_WIDTH - SCORECARD_MARGIN 
+							- g.getFontMetrics().stringWidth(label), rowY, CATEGORY_HEIGHT);
+				}
+			}
+		}
+	}
+
+	/* Paint the header row with the scroll control and the column names */
+	private void paintHeader(Graphics g, int x, int y, int lastColumn) {
+		paintCell(g, x, y, CATEGORY_WIDTH, PLAYER_HEIGHT, FIXED_CATEGORY_BACKGROUND);
+		g.setFont(TITLE_FONT);
+		g.setColor(FIXED_CATEGORY_TEXT);
+		if (nColumns > visibleColumns) {
+			drawText(g, "<  " + (firstColumn + 1) + "-" + lastColumn + " of " + nColumns + "  >", 
+					x + SCORECARD_MARGIN, y, PLAYER_HEIGHT);
+		}
+		for (int column = firstColumn; column < lastColumn; column++) {
+			int cellX = x + CATEGORY_WIDTH + (column - firstColumn) * PLAYER_WIDTH;
+			paintCell(g, cellX, y, PLAYER_WIDTH, PLAYER_HEIGHT, 
+					column == activeColumn ? STANDARD_HIGHLIGHT : FIXED_CATEGORY_BACKGROUND);
+			g.setColor(FIXED_CATEGORY_TEXT);
+			drawText(g, columnNames[column], cellX + SCORECARD_MARGIN, y, PLAYER_HEIGHT);
+		}
+	}
+
+	private static void paintCell(Graphics g, int x, int y, int width, int height, Color background) {
+		g.setColor(background);
+		g.fillRect(x, y, width, height);
+		g.setColor(Color.BLACK);
+		g.drawRect(x, y, width - DIVIDER_SIZE, height - DIVIDER_SIZE);
+	}
+
+	/* Draw text vertically centered in a cell */
+	private static void drawText(Graphics g, String text, int x, int y, int height) {
+		FontMetrics metrics = g.getFontMetrics();
+		g.drawString(text, x, y + (height + metrics.getAscent() - metrics.getDescent()) / 2);
+	}
+
+	/** The score of a cell without a score */
+	public static final int EMPTY = Integer.MIN_VALUE;
+
+	/* Private constants */
+	private static final String[] CATEGORY_NAMES = { 
+		"Ones", "Twos", "Threes", "Fours", "Fives", "Sixes", "Upper Score", "Upper Bonus",
+		"Three of a Kind", "Four of a Kind", "Full House", "Small Straight", "Large Straight",
+		"Yahtzee!", "Chance", "Lower Score", "TOTAL" 
+	};
+
+	/* Private instance variables */
+	private String[] columnNames;
+	private int nColumns;
+	private int visibleColumns;
+	private int firstColumn;
+	private int activeColumn = -1;
+	private int highlightedCategory = -1;
+	private int[] scores;
+
+}
@@ -0,0 +1,178 @@
+/*
+ * File: YahtzeeAdvisor.java
+ * -------------------------
+ * This class suggests the best move for a player by looking up the
+ * expected values computed by YahtzeeSolver. The table is memory-mapped,
+ * so opening the advisor is cheap and a suggestion only evaluates the
+ * current turn.
+ */
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+public class YahtzeeAdvisor implements YahtzeeStrategy, YahtzeeConstants {
+
+	/**
+	 * Open the expected value table written by YahtzeeSolver
+	 * @param file
+	 * @return
+	 */
+	public static YahtzeeAdvisor open(File file) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = in.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new YahtzeeAdvisor(YahtzeeSolver.checkedTable(buffer, file));
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Creates an advisor on top of an expected value table
+	 * @param table values indexed by YahtzeeSolver.stateIndex
+	 */
+	public YahtzeeAdvisor(FloatBuffer table) {
+		this.table = table;
+	}
+
+	/**
+	 * Return the dice which should be rolled again
+	 * @param dice the current dice
+	 * @param rollsLeft the number of rolls left in this turn
+	 * @param state the packed scorecard of the player, see YahtzeeState
+	 * @return bit mask of the dice to roll again, 0 to keep all dice
+	 */
+	public int bestReroll(int[] dice, int rollsLeft, long state) {
+		if (rollsLeft <= 0) return 0;
+		double[] rollValues = rollValues(rollsLeft - 1, state);
+
+		/* only the keeps of the current dice are needed for the last step */
+		int bestMask = 0;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int rerollMask = 0; rerollMask <= YahtzeeRules.ALL_DICE; rerollMask++) {
+			int keep = DiceMultisets.keepIndexOf(dice, rerollMask);
+			double value = KeepTransitions.expectedValue(keep, rollValues);
+			if (value > bestValue + EPSILON) {
+				bestMask = rerollMask;
+				bestValue = value;
+			}
+		}
+		return bestMask;
+	}
+
+	/**
+	 * Return the value of each roll with the given number of rolls left. The
+	 * values of the last state asked for are kept per thread, so the later
+	 * rolls of a turn only cost the evaluation of the current dice.
+	 * @param rollsLeft
+	 * @param state
+	 * @return
+	 */
+	private double[] rollValues(int rollsLeft, long state) {
+		Scratch scratch = this.scratch.get();
+		if (scratch.state != state) {
+			YahtzeeSolver.scoreRolls(table, state, scratch.rollValues[0]);
+			scratch.state = state;
+			scratch.levels = 1;
+		}
+		while (scratch.levels <= rollsLeft) {
+			YahtzeeSolver.expectKeeps(scratch.rollValues[scratch.levels - 1], scratch.keepValues);
+			YahtzeeSolver.chooseKeeps(scratch.keepValues, scratch.rollValues[scratch.levels]);
+			scratch.levels++;
+		}
+		return scratch.rollValues[rollsLeft];
+	}
+
+	/**
+	 * Return the category the dice should be scored in
+	 * @param dice the final dice of the turn
+	 * @param state the packed scorecard of the player, see YahtzeeState
+	 * @return an unused scoring category
+	 */
+	public int bestCategory(int[] dice, long state) {
+		int roll = DiceMultisets.rollIndexOf(dice);
+		int bestCategory = -1;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < N_SCORING_CATEGORIES; i++) {
+			int category = YahtzeeSolver.SCORING_CATEGORIES[i];
+			if (YahtzeeState.isUsed(state, category)) continue;
+			double value = YahtzeeSolver.categoryValue(table, state, roll, category);
+			if (value > bestValue) {
+				bestCategory = category;
+				bestValue = value;
+			}
+		}
+		return bestCategory;
+	}
+
+	/**
+	 * Return the expected score of the remaining turns at the start of a turn
+	 * @param state the packed scorecard of the player, see YahtzeeState
+	 * @return
+	 */
+	public double expectedScore(long state) {
+		return table.get(YahtzeeSolver.stateIndex(state));
+	}
+
+	public int chooseReroll(int[] dice, int roll, long state) {
+		return bestReroll(dice, YahtzeeRules.N_ROLLS - roll, state);
+	}
+
+	public int chooseCategory(int[] dice, long state) {
+		return bestCategory(dice, state);
+	}
+
+	/**
+	 * Return a hint describing which dice to roll again
+	 * @param rerollMask
+	 * @return
+	 */
+	public static String rerollHint(int rerollMask) {
+		if (rerollMask == 0) return "Hint: keep all dice.";
+		String text = "Hint: re-roll ";
+		String next = "";
+		for (int i = 0; i < N_DICE; i++) {
+			if ((rerollMask & (1 << i)) != 0) {
+				text += next + "die " + (i + 1);
+				next = ", ";
+			}
+		}
+		return text + ".";
+	}
+
+	/**
+	 * Return a hint naming the category to score in
+	 * @param category
+	 * @return
+	 */
+	public static String categoryHint(int category) {
+		return "Hint: score as " + CATEGORY_NAMES[category] + ".";
+	}
+
+	/* Scratch arrays and the values of the last state, one set per thread */
+	private static class Scratch {
+		double[][] rollValues = new double[YahtzeeRules.N_ROLLS][DiceMultisets.N_ROLLS];
+		double[] keepValues = new double[DiceMultisets.N_KEEPS];
+		long state = -1;
+		int levels;
+	}
+
+	/* Private constants */
+	private static final double EPSILON = 1e-9;
+	private static final String[] CATEGORY_NAMES = {
+		"Ones", "Twos", "Threes", "Fours", "Fives", "Sixes", "", "",
+		"Three of a Kind", "Four of a Kind", "Full House", "Small Straight",
+		"Large Straight", "Yahtzee!", "Chance", "", ""
+	};
+
+	/* Private instance variables */
+	private FloatBuffer table;
+	private ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+		protected Scratch initialValue() {
+			return new Scratch();
+		}
+	};
+
+}
@@ -0,0 +1,369 @@
+/*
+ * File: YahtzeeBenchmark.java
+ * ---------------------------
+ * This program measures the time and the memory allocated per operation
+ * for scoring, rolling, reroll expectations, the high score list and
+ * the game journal, so that changes to these paths can be compared 
+ * against a baseline.
+ *
+ * usage: YahtzeeBenchmark [filter]
+ * Only benchmarks whose name contains the filter are run.
+ */
+
+import java.io.*;
+import java.lang.management.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class YahtzeeBenchmark implements YahtzeeConstants {
+
+	public static void main(String[] args) throws IOException {
+		String filter = args.length > 0 ? args[0] : "";
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+		addScoreBenchmarks(benchmarks);
+		addRollBenchmarks(benchmarks);
+		addTransitionBenchmarks(benchmarks);
+		addHighScoreBenchmarks(benchmarks);
+		addFileBenchmarks(benchmarks);
+		addJournalBenchmarks(benchmarks);
+
+		System.out.println(pad("benchmark", NAME_WIDTH) + pad("ns/op", 14) + "bytes/op");
+		for (Benchmark benchmark : benchmarks) {
+			if (benchmark.name.contains(filter)) {
+				benchmark.measure();
+			}
+		}
+		System.out.println("(sink " + sink + ")");
+	}
+
+	/* Score random rolls in each category */
+	private static void addScoreBenchmarks(List<Benchmark> benchmarks) {
+		final int[][] rolls = new int[ROLLS][N_DICE];
+		DiceRandom rgen = new SplitMix(SEED);
+		for (int i = 0; i < ROLLS; i++) {
+			YahtzeeRules.rollDice(rolls[i], YahtzeeRules.ALL_DICE, rgen);
+		}
+		for (int i = 0; i < YahtzeeSolver.SCORING_CATEGORIES.length; i++) {
+			final int category = YahtzeeSolver.SCORING_CATEGORIES[i];
+			benchmarks.add(new Benchmark("calculateScore/" + category) {
+				long run(long ops) {
+					long sum = 0;
+					for (long op = 0; op < ops; op++) {
+						sum += YahtzeeRules.calculateScore(rolls[(int) (op & (ROLLS - 1))], category);
+					}
+					return sum;
+				}
+			});
+		}
+	}
+
+	/* Roll the dice selected by different masks */
+	private static void addRollBenchmarks(List<Benchmark> benchmarks) {
+		int[] masks = { 0x01, 0x03, 0x07, 0x0f, YahtzeeRules.ALL_DICE };
+		for (int i = 0; i < masks.length; i++) {
+			final int mask = masks[i];
+			benchmarks.add(new Benchmark("rollDice/" + Integer.bitCount(mask) + "dice") {
+				long run(long ops) {
+					long sum = 0;
+					for (long op = 0; op < ops; op++) {
+						YahtzeeRules.rollDice(dice, mask, rgen);
+						sum += dice[0];
+					}
+					return sum;
+				}
+				private int[] dice = new int[N_DICE];
+				private DiceRandom rgen = new SplitMix(SEED);
+			});
+		}
+	}
+
+	/* Compute the expected value of keeps over the transition matrix */
+	private static void addTransitionBenchmarks(List<Benchmark> benchmarks) {
+		final double[] rollValues = new double[DiceMultisets.N_ROLLS];
+		Random rgen = new Random(SEED);
+		for (int roll = 0; roll < DiceMultisets.N_ROLLS; roll++) {
+			rollValues[roll] = rgen.nextDouble();
+		}
+		benchmarks.add(new Benchmark("expectedValue/keep") {
+			long run(long ops) {
+				double sum = 0;
+				for (long op = 0; op < ops; op++) {
+					sum += KeepTransitions.expectedValue((int) (op % DiceMultisets.N_KEEPS), rollValues);
+				}
+				return (long) sum;
+			}
+		});
+		benchmarks.add(new Benchmark("expectedValues/allKeeps") {
+			long run(long ops) {
+				double sum = 0;
+				for (long op = 0; op < ops; op++) {
+					KeepTransitions.expectedValues(rollValues, keepValues);
+					sum += keepValues[(int) (op % DiceMultisets.N_KEEPS)];
+				}
+				return (long) sum;
+			}
+			private double[] keepValues = new double[DiceMultisets.N_KEEPS];
+		});
+	}
+
+	/* Offer random scores to boards of different sizes */
+	private static void addHighScoreBenchmarks(List<Benchmark> benchmarks) {
+		int[] sizes = { 10, 10000 };
+		for (int i = 0; i < sizes.length; i++) {
+			final int size = sizes[i];
+			benchmarks.add(new Benchmark("newHighScore/" + size) {
+				long run(long ops) {
+					long sum = 0;
+					for (long op = 0; op < ops; op++) {
+						if (highScores.newHighScore("Player", rgen.nextInt(YahtzeeSimulator.MAX_SCORE))) sum++;
+					}
+					return sum;
+				}
+				void setup() {
+					highScores = filledHighScores(null, size);
+				}
+				private HighScores highScores;
+				private Random rgen = new Random(SEED);
+			});
+			benchmarks.add(new Benchmark("insertHighScore/" + size) {
+				long run(long ops) {
+					long sum = 0;
+					for (long op = 0; op < ops; op++) {
+						/* a score already on the list always enters it, at a random position */
+						int score = highScores.snapshot().getValue(rgen.nextInt(size));
+						if (highScores.newHighScore("Player", score)) sum++;
+					}
+					return sum;
+				}
+				void setup() {
+					highScores = filledHighScores(null, size);
+				}
+				private HighScores highScores;
+				private Random rgen = new Random(SEED);
+			});
+		}
+	}
+
+	/* Load and save high score files of different sizes */
+	private static void addFileBenchmarks(List<Benchmark> benchmarks) throws IOException {
+		int[] sizes = { 10, 10000, 1000000 };
+		for (int i = 0; i < sizes.length; i++) {
+			final int size = sizes[i];
+			final File file = File.createTempFile("highscores", ".txt");
+			file.deleteOnExit();
+			new File(file.getPath() + ".log").deleteOnExit();
+			new File(file.getPath() + ".lock").deleteOnExit();
+			benchmarks.add(new Benchmark("recordHighScore/" + size) {
+				long run(long ops) {
+					long sum = 0;
+					for (long op = 0; op < ops; op++) {
+						if (highScores.record("Player", YahtzeeSimulator.MAX_SCORE)) sum++;
+					}
+					return sum;
+				}
+				void setup() {
+					highScores = filledHighScores(file.getPath(), size);
+				}
+				private HighScores highScores;
+			});
+			benchmarks.add(new Benchmark("saveHighScores/" + size) {
+				long run(long ops) {
+					for (long op = 0; op < ops; op++) {
+						highScores.save();
+					}
+					return file.length();
+				}
+				void setup() {
+					highScores = filledHighScores(file.getPath(), size);
+				}
+				private HighScores highScores;
+			});
+			benchmarks.add(new Benchmark("loadHighScores/" + size) {
+				long run(long ops) {
+					long sum = 0;
+					for (long op = 0; op < ops; op++) {
+						highScores.load();
+						sum += highScores.size();
+					}
+					return sum;
+				}
+				void setup() {
+					highScores = filledHighScores(file.getPath(), size);
+				}
+				private HighScores highScores;
+			});
+		}
+	}
+
+	/* Record turns into a journal and replay a recorded game */
+	private static void addJournalBenchmarks(List<Benchmark> benchmarks) throws IOException {
+		final File file = File.createTempFile("games", ".journal");
+		file.deleteOnExit();
+		benchmarks.add(new Benchmark("recordJournal/turn") {
+			long run(long ops) {
+				long state = YahtzeeState.INITIAL;
+				for (long op = 0; op < ops; op++) {
+					if (YahtzeeState.isFinished(state)) state = YahtzeeState.INITIAL;
+					for (int roll = 0; roll < YahtzeeRules.N_ROLLS; roll++) {
+						YahtzeeRules.rollDice(dice, YahtzeeRules.ALL_DICE, rgen);
+						journal.roll(YahtzeeRules.ALL_DICE, dice);
+					}
+					int category = strategy.chooseCategory(dice, state);
+					journal.score(0, 0, category, 
+							YahtzeeState.categoryScore(state, YahtzeeScoreTable.indexOf(dice), category, 1));
+					state = YahtzeeState.score(state, YahtzeeScoreTable.indexOf(dice), category);
+				}
+				journal.flush();
+				return state;
+			}
+			void setup() {
+				try {
+					journal = GameJournal.open(file);
+				} catch (IOException ex) {
+					throw new IllegalStateException(ex);
+				}
+			}
+			private GameJournal journal;
+			private YahtzeeStrategy strategy = new GreedyStrategy();
+			private int[] dice = new int[N_DICE];
+			private DiceRandom rgen = new SplitMix(SEED);
+		});
+		benchmarks.add(new Benchmark("replayJournal/game") {
+			long run(long ops) {
+				for (long op = 0; op < ops; op++) {
+					buffer.rewind();
+					replayer.replay(buffer);
+				}
+				return replayer.getTurns() + replayer.getErrorCount();
+			}
+			void setup() {
+				try {
+					File game = File.createTempFile("game", ".journal");
+					game.deleteOnExit();
+					GameJournal journal = GameJournal.open(game);
+					journal.startGame(1, 1);
+					long state = YahtzeeState.INITIAL;
+					int[] dice = new int[N_DICE];
+					DiceRandom rgen = new SplitMix(SEED);
+					YahtzeeStrategy strategy = new GreedyStrategy();
+					for (int round = 0; round < N_SCORING_CATEGORIES; round++) {
+						YahtzeeRules.rollDice(dice, YahtzeeRules.ALL_DICE, rgen);
+						journal.roll(YahtzeeRules.ALL_DICE, dice);
+						for (int roll = 1; roll < YahtzeeRules.N_ROLLS; roll++) {
+							int rerollMask = strategy.chooseReroll(dice, roll, state);
+							YahtzeeRules.rollDice(dice, rerollMask, rgen);
+							journal.roll(rerollMask, dice);
+						}
+						int category = strategy.chooseCategory(dice, state);
+						int rollIndex = YahtzeeScoreTable.indexOf(dice);
+						journal.score(0, 0, category, YahtzeeState.categoryScore(state, rollIndex, category, 1));
+						state = YahtzeeState.score(state, rollIndex, category);
+					}
+					journal.endGame();
+					journal.close();
+					buffer = ByteBuffer.wrap(Files.readAllBytes(game.toPath()));
+				} catch (IOException ex) {
+					throw new IllegalStateException(ex);
+				}
+			}
+			private ByteBuffer buffer;
+			private JournalReplayer replayer = new JournalReplayer();
+		});
+	}
+
+	/* 
+	 * Return a high score list filled with descending scores. Boards backed by
+	 * a file are written as a snapshot and loaded in one pass.
+	 */
+	private static HighScores filledHighScores(String fileName, int size) {
+		HighScores highScores = new HighScores(fileName, size);
+		if (fileName == null) {
+			for (int i = 0; i < size; i++) {
+				highScores.newHighScore("Player " + i, YahtzeeSimulator.MAX_SCORE * (size - i) / size);
+			}
+			return highScores;
+		}
+		try {
+			new File(fileName + ".log").delete();
+			PrintWriter printWriter = new PrintWriter(new FileWriter(fileName));
+			for (int i = 0; i < size; i++) {
+				printWriter.println(YahtzeeSimulator.MAX_SCORE * (size - i) / size + "=Player " + i);
+			}
+			printWriter.close();
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+		highScores.load();
+		return highScores;
+	}
+
+	private static String pad(String text, int width) {
+		while (text.length() < width) text += " ";
+		return text;
+	}
+
+	/* A single benchmark, run repeatedly until enough time has been measured */
+	private static abstract class Benchmark {
+
+		public Benchmark(String name) {
+			this.name = name;
+		}
+
+		/* Run the operation the given number of times and return a result to consume */
+		abstract long run(long ops);
+
+		/* Prepare the data of the benchmark */
+		void setup() {
+		}
+
+		void measure() {
+			setup();
+			long ops = 1;
+			while (true) {
+				long start = System.nanoTime();
+				sink += run(ops);
+				if (System.nanoTime() - start > WARMUP_NANOS || ops > Long.MAX_VALUE / 4) break;
+				ops *= 2;
+			}
+			double best = Double.MAX_VALUE;
+			double bytes = 0;
+			for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+				long allocated = allocatedBytes();
+				long start = System.nanoTime();
+				sink += run(ops);
+				double nanos = (double) (System.nanoTime() - start) / ops;
+				long allocatedAfter = allocatedBytes();
+				bytes = allocated < 0 || allocatedAfter < 0 ? -1 : (double) (allocatedAfter - allocated) / ops;
+				if (nanos < best) best = nanos;
+			}
+			System.out.println(pad(name, NAME_WIDTH) + pad(String.format("%.1f", best), 14) 
+					+ (bytes < 0 ? "n/a" : String.format("%.1f", bytes)));
+		}
+
+		String name;
+	}
+
+	/* Return the bytes allocated by this thread so far, or -1 if the JVM does not measure them */
+	private static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) return -1;
+		com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+		if (!allocationBean.isThreadAllocatedMemorySupported() 
+				|| !allocationBean.isThreadAllocatedMemoryEnabled()) {
+			return -1;
+		}
+		return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/* Private constants */
+	private static final long SEED = 42;
+	private static final int ROLLS = 1024;
+	private static final int ITERATIONS = 5;
+	private static final long WARMUP_NANOS = 200000000L;
+	private static final int NAME_WIDTH = 28;
+
+	/* Results of the benchmarks, kept so the work cannot be optimized away */
+	private static volatile long sink;
+
+}
@@ -0,0 +1,290 @@
+/*
+ * File: YahtzeeEngine.java
+ * ------------------------
+ * This class holds the rules of a variant of Yahtzee: the number of
+ * dice, faces and rolls per turn, and the multipliers of the score
+ * columns of each player. The score of every category for every 
+ * ordered roll is computed once when the engine is created, so scoring
+ * is a single array read for every variant.
+ */
+
+import java.util.*;
+
+public class YahtzeeEngine implements YahtzeeConstants {
+
+	/**
+	 * Creates the rules of a variant and computes its score table
+	 * @param nDice
+	 * @param nFaces
+	 * @param nRolls the number of rolls per turn
+	 * @param multipliers the multiplier of each score column of a player
+	 */
+	public YahtzeeEngine(int nDice, int nFaces, int nRolls, int[] multipliers) {
+		if (nDice < 1 || nDice > MAX_DICE || nFaces < 1 || nRolls < 1 || multipliers.length < 1
+		    || Math.pow(nFaces, nDice) * N_CATEGORIES > MAX_TABLE_SIZE) {
+			throw new IllegalArgumentException("unsupported rules: " + nDice + " dice with " 
+					+ nFaces + " faces");
+		}
+		this.nDice = nDice;
+		this.nFaces = nFaces;
+		this.nRolls = nRolls;
+		this.multipliers = multipliers.clone();
+		int perDraw = 1;
+		while (perDraw < nDice && Math.pow(nFaces, perDraw + 1) <= MAX_DRAW_RANGE) perDraw++;
+		dicePerDraw = perDraw;
+		nOrderedRolls = (int) Math.pow(nFaces, nDice);
+		scores = createScores();
+	}
+
+	public int getDiceCount() {
+		return nDice;
+	}
+
+	public int getFaceCount() {
+		return nFaces;
+	}
+
+	public int getRollCount() {
+		return nRolls;
+	}
+
+	public int getColumnCount() {
+		return multipliers.length;
+	}
+
+	/**
+	 * Return the multiplier of the scores in a column of a player
+	 * @param column
+	 * @return
+	 */
+	public int getMultiplier(int column) {
+		return multipliers[column];
+	}
+
+	/**
+	 * Return the number of different ordered rolls of the dice
+	 * @return
+	 */
+	public int getOrderedRollCount() {
+		return nOrderedRolls;
+	}
+
+	/**
+	 * Return the bit mask selecting all dice for a roll
+	 * @return
+	 */
+	public int getAllDice() {
+		return (1 << nDice) - 1;
+	}
+
+	/**
+	 * Roll all dice whose bit is set in the given mask. One 64 bit draw is
+	 * read as a binary fraction and its base nFaces digits are the dice;
+	 * a new draw is taken after dicePerDraw dice, which keeps the bias 
+	 * below 2^-32.
+	 * @param dice
+	 * @param rerollMask bit i set means die i is rolled
+	 * @param rgen
+	 */
+	public void rollDice(int[] dice, int rerollMask, DiceRandom rgen) {
+		long fraction = rgen.nextLong();
+		int left = dicePerDraw;
+		for (int i = 0; i < nDice; i++) {
+			if ((rerollMask & (1 << i)) == 0) continue;
+			if (left == 0) {
+				fraction = rgen.nextLong();
+				left = dicePerDraw;
+			}
+			long low = (fraction & 0xffffffffL) * nFaces;
+			long high = (fraction >>> 32) * nFaces + (low >>> 32);
+			dice[i] = (int) (high >>> 32) + 1;
+			fraction = (high << 32) | (low & 0xffffffffL);
+			left--;
+		}
+	}
+
+	/**
+	 * Return the index of the ordered roll in the score table
+	 * @param dice
+	 * @return
+	 */
+	public int indexOf(int[] dice) {
+		int index = 0;
+		for (int i = nDice - 1; i >= 0; i--) {
+			index = index * nFaces + dice[i] - 1;
+		}
+		return index;
+	}
+
+	/**
+	 * Return the score of a category for the roll with the given index
+	 * @param rollIndex
+	 * @param category
+	 * @return
+	 */
+	public int getScore(int rollIndex, int category) {
+		return scores[rollIndex * N_CATEGORIES + category];
+	}
+
+	/**
+	 * Return whether the roll with the given index is a Yahtzee
+	 * @param rollIndex
+	 * @return
+	 */
+	public boolean isYahtzee(int rollIndex) {
+		return scores[rollIndex * N_CATEGORIES + YAHTZEE] > 0;
+	}
+
+	/**
+	 * Return the score written into a category for a roll: the category 
+	 * score times the multiplier plus the bonus for additional Yahtzees
+	 * @param state see YahtzeeState
+	 * @param rollIndex
+	 * @param category
+	 * @param multiplier the multiplier of the column
+	 * @return
+	 */
+	public int categoryScore(long state, int rollIndex, int category, int multiplier) {
+		int score = scores[rollIndex * N_CATEGORIES + category] * multiplier;
+		if (category != YAHTZEE
+		    && YahtzeeState.allowsAdditionalYahtzees(state)
+		    && YahtzeeState.isUsed(state, YAHTZEE)
+		    && isYahtzee(rollIndex)) {
+			score += YahtzeeRules.SCORE_ADDITONAL_YAHTZEES;
+		}
+		return score;
+	}
+
+	/**
+	 * Return the state after scoring a roll in an unused category
+	 * @param state see YahtzeeState
+	 * @param rollIndex
+	 * @param category
+	 * @param multiplier the multiplier of the column
+	 * @return
+	 */
+	public long score(long state, int rollIndex, int category, int multiplier) {
+		return YahtzeeState.add(state, category, categoryScore(state, rollIndex, category, multiplier));
+	}
+
+	/**
+	 * Return the total score of a player over all columns
+	 * @param columnStates see YahtzeeState
+	 * @param player the columns of player p start at p * getColumnCount()
+	 * @return
+	 */
+	public int totalScore(long[] columnStates, int player) {
+		int total = 0;
+		for (int column = 0; column < multipliers.length; column++) {
+			total += YahtzeeState.totalScore(columnStates[player * multipliers.length + column], 
+					multipliers[column]);
+		}
+		return total;
+	}
+
+	/**
+	 * Return whether a category can be chosen to score a roll
+	 * @param category
+	 * @return
+	 */
+	public static boolean isScoringCategory(int category) {
+		return category >= ONES && category <= CHANCE 
+				&& category != UPPER_SCORE && category != UPPER_BONUS;
+	}
+
+	/* Fill the table by scoring every roll once */
+	private int[] createScores() {
+		int[] scores = new int[nOrderedRolls * N_CATEGORIES];
+		int[] dice = new int[nDice];
+		int[] counts = new int[nFaces];
+		for (int rollIndex = 0; rollIndex < nOrderedRolls; rollIndex++) {
+			int rest = rollIndex;
+			for (int i = 0; i < nDice; i++) {
+				dice[i] = rest % nFaces + 1;
+				rest /= nFaces;
+			}
+			for (int category = 0; category < N_CATEGORIES; category++) {
+				scores[rollIndex * N_CATEGORIES + category] = computeScore(dice, counts, category);
+			}
+		}
+		return scores;
+	}
+
+	/**
+	 * Calculate the score of a category by scanning the dice
+	 * @param dice
+	 * @param counts scratch array of nFaces entries
+	 * @param category
+	 * @return
+	 */
+	private int computeScore(int[] dice, int[] counts, int category) {
+		int sum = 0;
+		int maxCount = 0;
+		Arrays.fill(counts, 0);
+		for (int i = 0; i < nDice; i++) {
+			sum += dice[i];
+			maxCount = Math.max(maxCount, ++counts[dice[i] - 1]);
+		}
+		switch (category) {
+		case ONES: case TWOS: case THREES: case FOURS: case FIVES: case SIXES:
+			int face = category - ONES + 1;
+			return face <= nFaces ? counts[face - 1] * face : 0;
+		case THREE_OF_A_KIND:
+			return maxCount >= 3 ? sum : 0;
+		case FOUR_OF_A_KIND:
+			return maxCount >= 4 ? sum : 0;
+		case FULL_HOUSE:
+			boolean found2 = false;
+			boolean found3 = false;
+			for (int i = 0; i < nFaces; i++) {
+				if (counts[i] == 2) found2 = true;
+				if (counts[i] == 3) found3 = true;
+			}
+			return found2 && found3 ? YahtzeeRules.SCORE_FULL_HOUSE : 0;
+		case SMALL_STRAIGHT:
+			return longestRun(counts) >= 4 ? YahtzeeRules.SCORE_SMALL_STRAIGHT : 0;
+		case LARGE_STRAIGHT:
+			return longestRun(counts) >= 5 ? YahtzeeRules.SCORE_LARGE_STRAIGHT : 0;
+		case YAHTZEE:
+			return maxCount == nDice ? YahtzeeRules.SCORE_YAHTZEE : 0;
+		case CHANCE:
+			return sum;
+		default:
+			return 0;
+		}
+	}
+
+	/* Return the length of the longest run of consecutive faces */
+	private static int longestRun(int[] counts) {
+		int run = 0;
+		int longest = 0;
+		for (int i = 0; i < counts.length; i++) {
+			run = counts[i] > 0 ? run + 1 : 0;
+			if (run > longest) longest = run;
+		}
+		return longest;
+	}
+
+	/** The rules of standard Yahtzee */
+	public static final YahtzeeEngine STANDARD = new YahtzeeEngine(N_DICE, 
+			YahtzeeRules.N_FACES, YahtzeeRules.N_ROLLS, new int[] { 1 });
+
+	/** The rules of TrippleYahtzee: three columns, scored single, double and triple */
+	public static final YahtzeeEngine TRIPPLE = new YahtzeeEngine(N_DICE, 
+			YahtzeeRules.N_FACES, YahtzeeRules.N_ROLLS, new int[] { 1, 2, 3 });
+
+	/* Private constants */
+	private static final int MAX_DICE = 30;
+	private static final double MAX_TABLE_SIZE = 1 << 26;
+	private static final double MAX_DRAW_RANGE = 1L << 32;
+
+	/* Private instance variables */
+	private final int nDice;
+	private final int nFaces;
+	private final int nRolls;
+	private final int[] multipliers;
+	private final int dicePerDraw;
+	private final int nOrderedRolls;
+	private final int[] scores;
+
+}
@@ -0,0 +1,246 @@
+/*
+ * File: YahtzeeGame.java
+ * ----------------------
+ * This class plays a game of Yahtzee on a YahtzeeView: the Yahtzee
+ * program shows it in its window, tests and soak runs play it on a
+ * HeadlessView without any window.
+ */
+
+import java.util.*;
+
+public class YahtzeeGame implements YahtzeeConstants {
+
+	/**
+	 * Creates a game
+	 * @param view
+	 * @param playerNames
+	 * @param rgen rolls the dice
+	 */
+	public YahtzeeGame(YahtzeeView view, String[] playerNames, DiceRandom rgen) {
+		this.view = view;
+		this.playerNames = playerNames;
+		this.rgen = rgen;
+		nPlayers = playerNames.length;
+	}
+
+	/**
+	 * Show hints of the advisor with the messages
+	 * @param advisor
+	 */
+	public void setAdvisor(YahtzeeAdvisor advisor) {
+		this.advisor = advisor;
+	}
+
+	/**
+	 * Record new high scores when the game is over
+	 * @param highScores
+	 */
+	public void setHighScores(HighScores highScores) {
+		this.highScores = highScores;
+	}
+
+	/**
+	 * Record the rolls and scores of the game
+	 * @param journal
+	 */
+	public void setJournal(GameJournal journal) {
+		this.journal = journal;
+	}
+
+	/**
+	 * Return the total score of a player
+	 * @param player
+	 * @return
+	 */
+	public int getTotalScore(int player) {
+		return RULES.totalScore(playerStates, player);
+	}
+
+	/**
+	 * Play the game from the first roll to the announcement of the winner
+	 */
+	public void play() {
+		playerStates = new long[nPlayers];
+		Arrays.fill(playerStates, YahtzeeState.INITIAL);
+		if (journal != null) journal.startGame(nPlayers, 1);
+
+		for (int round = 0; round < N_SCORING_CATEGORIES; round++) {
+			for (int player = 0; player < nPlayers; player++) {	
+				firstRoll(player);
+				for (int roll = 1; roll < N_ROLLS; roll++) {					
+					furtherRoll(player, roll);
+				}
+				updateScore(player);
+			}
+		}
+		findWinner();
+		if (journal != null) journal.endGame();
+	}
+
+	/**
+	 * check for new high scores and return if any have been found
+	 * @return
+	 */
+	private boolean newHighScore() {
+		boolean newHighScore = false;
+		for (int player = 0; player < nPlayers; player++) {
+			if (highScores != null && highScores.record(playerNames[player], RULES.totalScore(playerStates, player))) {
+				newHighScore = true;
+			}
+		}
+		return newHighScore;
+	}
+
+	/**
+	 * Find winners by looping over the total scores of each player and display
+	 * the name[s] of the player with the highest score
+	 */
+	private void findWinner() {
+		String winner = "";
+		String next = "";
+		int winningScore = 0;
+		for (int player = 0; player < nPlayers; player++) {	
+			int totalScore = RULES.totalScore(playerStates, player);
+			if (totalScore == winningScore) {
+				winner += next + playerNames[player];
+			} else if (totalScore > winningScore) {
+				winner = playerNames[player];
+				winningScore = totalScore;				
+			} 
+			next = " and ";
+		}
+		if (newHighScore()) {
+			view.printMessage("Congratulations, " + winner + ", you won with a new high score of " + winningScore + "!");
+		} else {
+			view.printMessage("Congratulations, " + winner + ", you won with a total score of " + winningScore + "!");
+		}
+
+	}
+
+	/**
+	 * Wait for a valid selection of a score update that score as well as the
+	 * total and sub totals for a particular player
+	 * @param player
+	 */
+	private void updateScore(int player) {
+		int category;
+		long state = playerStates[player];
+		while (true) {
+			String message = "Select a category for this roll.";
+			if (advisor != null) {
+				message += " " + YahtzeeAdvisor.categoryHint(advisor.chooseCategory(dice, state));
+			}
+			view.printMessage(message);
+			long start = System.nanoTime();
+			category = view.waitForPlayerToSelectCategory();
+			if (Metrics.ENABLED) CATEGORY_WAIT.record(Metrics.micros(start));
+			if (!YahtzeeState.isUsed(state, category)) break;			
+		}
+
+		int multiplier = RULES.getMultiplier(0);
+		int rollIndex = RULES.indexOf(dice);
+		int score = RULES.categoryScore(state, rollIndex, category, multiplier);
+		state = RULES.score(state, rollIndex, category, multiplier);
+		playerStates[player] = state;
+
+		updateScorecard(category, player, score);
+		if (journal != null) journal.score(player, 0, category, score);
+		
+		if (category < UPPER_SCORE) {
+			updateScorecard(UPPER_SCORE, player, YahtzeeState.upperScore(state));
+		} else {
+			updateScorecard(LOWER_SCORE, player, YahtzeeState.lowerScore(state));
+		}
+
+		if (YahtzeeState.hasUpperBonus(state, multiplier)) {
+			updateScorecard(UPPER_BONUS, player, SCORE_UPPER_BONUS * multiplier);
+		}
+
+		updateScorecard(TOTAL, player, YahtzeeState.totalScore(state, multiplier));
+		view.flushScorecard();
+		if (Metrics.ENABLED) {
+			SCORECARD_UPDATES.record(scorecardUpdates);
+			scorecardUpdates = 0;
+		}
+	}
+
+	/**
+	 * Update a cell of the scorecard, counting the updates of a turn
+	 * @param category
+	 * @param column
+	 * @param score
+	 */
+	private void updateScorecard(int category, int column, int score) {
+		view.updateScorecard(category, column, score);
+		scorecardUpdates++;
+	}
+
+	/**
+	 * Handle the first roll of dice of a particular player
+	 * @param player
+	 */
+	private void firstRoll(int player) {
+		String playerName = playerNames[player];				
+		view.printMessage(playerName + "'s turn. Click \"Roll Dice\" button to roll the dice.");
+		long start = System.nanoTime();
+		view.waitForPlayerToClickRoll(player);
+		if (Metrics.ENABLED) ROLL_WAIT.record(Metrics.micros(start));
+		rollDice(true);
+		view.displayDice(dice);		
+	}
+
+	/** 
+	 * Handle consecutive rolls of dice
+	 * @param player
+	 * @param roll the number of rolls already made
+	 */
+	private void furtherRoll(int player, int roll) {
+		String message = "Select the dice you which to re-roll and click \"Roll Again\".";
+		if (advisor != null) {
+			message += " " + YahtzeeAdvisor.rerollHint(advisor.chooseReroll(dice, roll, playerStates[player]));
+		}
+		view.printMessage(message);
+		long start = System.nanoTime();
+		view.waitForPlayerToSelectDice();
+		if (Metrics.ENABLED) DICE_WAIT.record(Metrics.micros(start));
+		rollDice(false);
+		view.displayDice(dice);
+	}
+
+	/**
+	 * Roll all or selected dice
+	 * @param reRollAll
+	 */
+	private void rollDice(boolean reRollAll) {
+		int rerollMask = 0;
+		for (int i = 0; i < N_DICE; i++) {
+			if (reRollAll || view.isDieSelected(i)) {
+				rerollMask |= 1 << i;
+			}				
+		}
+		RULES.rollDice(dice, rerollMask, rgen);
+		if (journal != null) journal.roll(rerollMask, dice);
+	}
+
+	/* Private constants */
+	private static final YahtzeeEngine RULES = YahtzeeEngine.STANDARD;
+	private static final int N_ROLLS = RULES.getRollCount();
+	private static final int SCORE_UPPER_BONUS = YahtzeeRules.SCORE_UPPER_BONUS;
+	private static final Histogram ROLL_WAIT = Metrics.histogram("wait.roll.us");
+	private static final Histogram DICE_WAIT = Metrics.histogram("wait.dice.us");
+	private static final Histogram CATEGORY_WAIT = Metrics.histogram("wait.category.us");
+	private static final Histogram SCORECARD_UPDATES = Metrics.histogram("scorecard.updatesPerTurn");
+
+	/* Private instance variables */
+	private int nPlayers;
+	private String[] playerNames;
+	private YahtzeeView view;
+	private YahtzeeAdvisor advisor;
+	private DiceRandom rgen;
+	private int[] dice = new int[N_DICE];
+	private long[] playerStates;
+	private HighScores highScores;
+	private GameJournal journal;
+	private int scorecardUpdates;
+
+}
@@ -0,0 +1,119 @@
+/*
+ * File: YahtzeeLoadGenerator.java
+ * -------------------------------
+ * This program drives a YahtzeeServer with synthetic players which 
+ * answer every change of their table at once, using a strategy, and
+ * reports the throughput and the latency of the turns.
+ */
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class YahtzeeLoadGenerator implements TableListener {
+
+	/**
+	 * Play games on many tables for a while
+	 * usage: YahtzeeLoadGenerator [tables] [players] [seconds] [threads]
+	 * @param args
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int nTables = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int nPlayers = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		int nThreads = args.length > 3 ? Integer.parseInt(args[3]) 
+				: Runtime.getRuntime().availableProcessors();
+
+		YahtzeeServer server = new YahtzeeServer(nThreads);
+		YahtzeeLoadGenerator generator = new YahtzeeLoadGenerator(new GreedyStrategy(), nTables);
+		for (int i = 0; i < nTables; i++) {
+			server.openTable(nPlayers, i, generator);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < nTables; i++) {
+			server.getTable(i).start();
+		}
+		Thread.sleep(seconds * 1000L);
+		generator.stopped = true;
+		generator.idleTables.await();
+		server.shutdown(1, TimeUnit.MINUTES);
+		double elapsed = (System.nanoTime() - start) / 1e9;
+
+		System.out.printf("%d tables, %d players, %d threads, %.1f s%n", 
+				nTables, nPlayers, nThreads, elapsed);
+		System.out.printf("games:  %12d  %12.0f/s%n", generator.games.get(), generator.games.get() / elapsed);
+		System.out.printf("turns:  %12d  %12.0f/s%n", generator.turns.get(), generator.turns.get() / elapsed);
+		System.out.printf("events: %12d  %12.0f/s%n", generator.events.get(), generator.events.get() / elapsed);
+		System.out.printf("turn latency: p50 %d us  p99 %d us  max %d us%n", 
+				generator.latencies.percentile(0.5), generator.latencies.percentile(0.99), 
+				generator.latencies.max());
+		if (generator.rejected.get() > 0) {
+			System.err.println(generator.rejected.get() + " tables rejected an event and stopped");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Creates players answering with the given strategy
+	 * @param strategy
+	 * @param nTables the number of tables played on
+	 */
+	public YahtzeeLoadGenerator(YahtzeeStrategy strategy, int nTables) {
+		this.strategy = strategy;
+		idleTables = new CountDownLatch(nTables);
+	}
+
+	public void tableChanged(YahtzeeTable table, int player, int what) {
+		switch (what) {
+		case TURN_STARTED:
+			if (stopped) {
+				idleTables.countDown();
+			} else {
+				events.incrementAndGet();
+				table.submit(YahtzeeTable.ROLL, 0);
+			}
+			break;
+		case DICE_ROLLED:
+			events.incrementAndGet();
+			int[] dice = table.getDice();
+			long state = table.getPlayerState(player);
+			int rerollMask = 0;
+			if (table.getRoll() < YahtzeeRules.N_ROLLS) {
+				rerollMask = strategy.chooseReroll(dice, table.getRoll(), state);
+			}
+			if (rerollMask != 0) {
+				table.submit(YahtzeeTable.REROLL, rerollMask);
+			} else {
+				table.submit(YahtzeeTable.SCORE, strategy.chooseCategory(dice, state));
+			}
+			break;
+		case SCORED:
+			turns.incrementAndGet();
+			latencies.record(Metrics.micros(table.getTurnStartNanos()));
+			break;
+		case GAME_OVER:
+			games.incrementAndGet();
+			if (stopped) {
+				idleTables.countDown();
+			} else {
+				table.start();
+			}
+			break;
+		case REJECTED:
+			/* the table waits for an event that will never come, so it is idle now */
+			rejected.incrementAndGet();
+			idleTables.countDown();
+			break;
+		}
+	}
+
+	/* Private instance variables */
+	private YahtzeeStrategy strategy;
+	private volatile boolean stopped;
+	private CountDownLatch idleTables;
+	private AtomicLong games = new AtomicLong();
+	private AtomicLong turns = new AtomicLong();
+	private AtomicLong events = new AtomicLong();
+	private AtomicLong rejected = new AtomicLong();
+	private Histogram latencies = Metrics.histogram("table.turn.us");
+
+}
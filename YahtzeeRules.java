@@ -0,0 +1,78 @@
+/*
+ * File: YahtzeeRules.java
+ * -----------------------
+ * This class collects the constants of the Yahtzee rules and static
+ * shortcuts to the standard rules, YahtzeeEngine.STANDARD, for the
+ * simulator, the solver and the strategies.
+ */
+
+public class YahtzeeRules implements YahtzeeConstants {
+
+	/**
+	 * Roll all dice whose bit is set in the given mask, see YahtzeeEngine.rollDice
+	 * @param dice
+	 * @param rerollMask bit i set means die i is rolled
+	 * @param rgen
+	 */
+	public static void rollDice(int[] dice, int rerollMask, DiceRandom rgen) {
+		YahtzeeEngine.STANDARD.rollDice(dice, rerollMask, rgen);
+	}
+
+	/**
+	 * Calculate the score a player gets for putting the dice into a category,
+	 * including the bonus for additional Yahtzees
+	 * @param dice
+	 * @param category
+	 * @param yahtzeeUsed whether the Yahtzee category has already been used
+	 * @param allowAdditionalYahtzees whether additional Yahtzees still earn a bonus
+	 * @return
+	 */
+	public static int scoreCategory(int[] dice, int category, boolean yahtzeeUsed, boolean allowAdditionalYahtzees) {
+		return scoreCategory(YahtzeeScoreTable.indexOf(dice), category, yahtzeeUsed, allowAdditionalYahtzees);
+	}
+
+	/**
+	 * Calculate the score a player gets for putting the roll with the given 
+	 * score table index into a category, including the bonus for additional Yahtzees
+	 * @param rollIndex
+	 * @param category
+	 * @param yahtzeeUsed whether the Yahtzee category has already been used
+	 * @param allowAdditionalYahtzees whether additional Yahtzees still earn a bonus
+	 * @return
+	 */
+	public static int scoreCategory(int rollIndex, int category, boolean yahtzeeUsed, boolean allowAdditionalYahtzees) {
+		int score = YahtzeeScoreTable.getScore(rollIndex, category);
+		if (category != YAHTZEE
+		    && allowAdditionalYahtzees
+		    && yahtzeeUsed
+		    && YahtzeeScoreTable.isYahtzee(rollIndex)) {
+			score += SCORE_ADDITONAL_YAHTZEES;
+		}
+		return score;
+	}
+
+	/**
+	 * Calculate the score of a chosen category and return the result
+	 * @param dice
+	 * @param category
+	 * @return
+	 */
+	public static int calculateScore(int[] dice, int category) {
+		return YahtzeeScoreTable.getScore(YahtzeeScoreTable.indexOf(dice), category);
+	}
+
+	/* Public constants */
+	public static final int N_ROLLS = 3;
+	public static final int N_FACES = 6;
+	public static final int SCORE_FULL_HOUSE = 25;
+	public static final int SCORE_SMALL_STRAIGHT = 30;
+	public static final int SCORE_LARGE_STRAIGHT = 40;
+	public static final int SCORE_YAHTZEE = 50;
+	public static final int SCORE_UPPER_BONUS_LIMIT = 63;
+	public static final int SCORE_UPPER_BONUS = 35;
+	public static final int SCORE_ADDITONAL_YAHTZEES = 100;
+
+	/** Bit mask selecting all dice for a roll */
+	public static final int ALL_DICE = (1 << N_DICE) - 1;
+
+}
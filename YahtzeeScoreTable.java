@@ -0,0 +1,42 @@
+/*
+ * File: YahtzeeScoreTable.java
+ * ----------------------------
+ * This class gives static access to the score table of the standard
+ * rules, YahtzeeEngine.STANDARD, for the solver and the strategies which
+ * only deal with standard dice.
+ */
+
+public class YahtzeeScoreTable implements YahtzeeConstants {
+
+	/**
+	 * Return the index of the ordered roll in the score table
+	 * @param dice
+	 * @return
+	 */
+	public static int indexOf(int[] dice) {
+		return YahtzeeEngine.STANDARD.indexOf(dice);
+	}
+
+	/**
+	 * Return the score of a category for the roll with the given index
+	 * @param rollIndex
+	 * @param category
+	 * @return
+	 */
+	public static int getScore(int rollIndex, int category) {
+		return YahtzeeEngine.STANDARD.getScore(rollIndex, category);
+	}
+
+	/**
+	 * Return whether the roll with the given index is a Yahtzee
+	 * @param rollIndex
+	 * @return
+	 */
+	public static boolean isYahtzee(int rollIndex) {
+		return YahtzeeEngine.STANDARD.isYahtzee(rollIndex);
+	}
+
+	/** The number of different ordered rolls of the dice */
+	public static final int N_ORDERED_ROLLS = YahtzeeEngine.STANDARD.getOrderedRollCount();
+
+}
@@ -0,0 +1,72 @@
+/*
+ * File: YahtzeeServer.java
+ * ------------------------
+ * This class hosts many YahtzeeTables in one process. The tables share
+ * a small pool of threads: a table only occupies a thread while it
+ * processes its queued events, waiting for a player costs nothing but
+ * the memory of the table.
+ */
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public class YahtzeeServer {
+
+	/**
+	 * Creates a server
+	 * @param nThreads number of threads processing the tables
+	 */
+	public YahtzeeServer(int nThreads) {
+		/* one shared FIFO queue, so that every table gets its turn */
+		executor = Executors.newFixedThreadPool(Math.max(1, nThreads));
+	}
+
+	/**
+	 * Open a new table, the game is started with YahtzeeTable.start()
+	 * @param nPlayers
+	 * @param seed for the dice of the table
+	 * @param listener receives the changes of the table
+	 * @return
+	 */
+	public synchronized YahtzeeTable openTable(int nPlayers, long seed, TableListener listener) {
+		YahtzeeTable table = new YahtzeeTable(tables.size(), nPlayers, new SplitMix(seed), 
+				listener, executor);
+		tables.add(table);
+		return table;
+	}
+
+	/**
+	 * Return the table with the given id
+	 * @param id
+	 * @return
+	 */
+	public synchronized YahtzeeTable getTable(int id) {
+		return tables.get(id);
+	}
+
+	/**
+	 * Queue an event for a table
+	 * @param id the table
+	 * @param type see YahtzeeTable
+	 * @param argument
+	 */
+	public void submit(int id, int type, int argument) {
+		getTable(id).submit(type, argument);
+	}
+
+	/**
+	 * Stop processing events, waiting for the events already queued
+	 * @param timeout
+	 * @param unit
+	 * @return whether all events have been processed
+	 */
+	public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+		executor.shutdown();
+		return executor.awaitTermination(timeout, unit);
+	}
+
+	/* Private instance variables */
+	private ExecutorService executor;
+	private List<YahtzeeTable> tables = new ArrayList<YahtzeeTable>();
+
+}
@@ -0,0 +1,158 @@
+/*
+ * File: YahtzeeSimulator.java
+ * ---------------------------
+ * This program plays games of solitaire Yahtzee without any display,
+ * using a strategy for the decisions, on all available processors.
+ */
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class YahtzeeSimulator implements YahtzeeConstants {
+
+	/**
+	 * Simulate games with the greedy strategy or the optimal strategy 
+	 * of the YahtzeeAdvisor
+	 * usage: YahtzeeSimulator [games] [seed] [greedy|optimal]
+	 * @param args
+	 */
+	public static void main(String[] args) throws IOException {
+		long nGames = args.length > 0 ? Long.parseLong(args[0]) : 1000000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+		YahtzeeStrategy strategy = new GreedyStrategy();
+		if (args.length > 2 && args[2].equals("optimal")) {
+			strategy = YahtzeeAdvisor.open(new File(YahtzeeSolver.EV_TABLE_FILE));
+		}
+		YahtzeeSimulator simulator = new YahtzeeSimulator(strategy, 
+				Runtime.getRuntime().availableProcessors());
+		System.out.print(simulator.simulate(nGames, seed));
+		if (METRICS) System.out.print(Metrics.report());
+	}
+
+	/**
+	 * Creates a simulator
+	 * @param strategy shared by all threads
+	 * @param nThreads number of worker threads
+	 */
+	public YahtzeeSimulator(YahtzeeStrategy strategy, int nThreads) {
+		this.strategy = strategy;
+		this.nThreads = Math.max(1, nThreads);
+	}
+
+	/**
+	 * Play the given number of games and collect the final scores
+	 * @param nGames
+	 * @param seed makes the simulation reproducible
+	 * @return
+	 */
+	public SimulationResult simulate(long nGames, long seed) {
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+		long start = System.nanoTime();
+		try {
+			List<Future<long[]>> futures = new ArrayList<Future<long[]>>();
+			DiceRandom root = new SplitMix(seed);
+			for (int i = 0; i < nThreads; i++) {
+				long share = nGames / nThreads + (i < nGames % nThreads ? 1 : 0);
+				futures.add(executor.submit(new Worker(strategy, share, root.split())));
+			}
+			long[] histogram = new long[MAX_SCORE + 1];
+			for (Future<long[]> future : futures) {
+				long[] partial = future.get();
+				for (int score = 0; score <= MAX_SCORE; score++) {
+					histogram[score] += partial[score];
+				}
+			}
+			return new SimulationResult(histogram, System.nanoTime() - start);
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(ex);
+		} catch (ExecutionException ex) {
+			throw new IllegalStateException(ex.getCause());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Play a single game following the same sequence of rolls and score 
+	 * updates as Yahtzee.playGame and return the final score
+	 * @param strategy
+	 * @param rgen
+	 * @param dice scratch array for the dice
+	 * @return
+	 */
+	public static int playGame(YahtzeeStrategy strategy, DiceRandom rgen, int[] dice) {
+		long state = YahtzeeState.INITIAL;
+		for (int round = 0; round < N_SCORING_CATEGORIES; round++) {
+			state = playTurn(strategy, rgen, dice, state);
+		}
+		return YahtzeeState.totalScore(state);
+	}
+
+	/**
+	 * Play a single turn and return the new state of the player
+	 * @param strategy
+	 * @param rgen
+	 * @param dice scratch array for the dice
+	 * @param state see YahtzeeState
+	 * @return
+	 */
+	public static long playTurn(YahtzeeStrategy strategy, DiceRandom rgen, int[] dice, long state) {
+		YahtzeeRules.rollDice(dice, YahtzeeRules.ALL_DICE, rgen);
+		int roll = 1;
+		for (; roll < YahtzeeRules.N_ROLLS; roll++) {
+			int rerollMask = strategy.chooseReroll(dice, roll, state);
+			if (rerollMask == 0) break;
+			YahtzeeRules.rollDice(dice, rerollMask, rgen);
+		}
+		if (METRICS) {
+			TURNS.increment();
+			ROLLS_PER_TURN.record(roll);
+		}
+		int category = strategy.chooseCategory(dice, state);
+		if (!YahtzeeEngine.isScoringCategory(category) || YahtzeeState.isUsed(state, category)) {
+			throw new IllegalStateException("strategy chose invalid category " + category);
+		}
+		return YahtzeeState.score(state, YahtzeeScoreTable.indexOf(dice), category);
+	}
+
+	/* Plays a share of the games on one thread */
+	private static class Worker implements Callable<long[]> {
+
+		public Worker(YahtzeeStrategy strategy, long nGames, DiceRandom rgen) {
+			this.strategy = strategy;
+			this.nGames = nGames;
+			this.rgen = rgen;
+		}
+
+		public long[] call() {
+			long[] histogram = new long[MAX_SCORE + 1];
+			int[] dice = new int[N_DICE];
+			for (long game = 0; game < nGames; game++) {
+				histogram[playGame(strategy, rgen, dice)]++;
+			}
+			return histogram;
+		}
+
+		private YahtzeeStrategy strategy;
+		private long nGames;
+		private DiceRandom rgen;
+	}
+
+	/** The highest score possible in one game (all additional Yahtzees) */
+	public static final int MAX_SCORE = 1575;
+
+	/* Private constants */
+
+	/* Whether turns are counted, false lets the compiler drop it from the hot path */
+	private static final boolean METRICS = false;
+	private static final LongAdder TURNS = Metrics.counter("simulator.turns");
+	private static final Histogram ROLLS_PER_TURN = Metrics.histogram("simulator.rollsPerTurn");
+
+	/* Private instance variables */
+	private YahtzeeStrategy strategy;
+	private int nThreads;
+
+}
@@ -0,0 +1,95 @@
+/*
+ * File: YahtzeeSoakRunner.java
+ * ----------------------------
+ * This program plays many complete games of Yahtzee, with messages, 
+ * scorecard updates and all, on HeadlessViews on all available 
+ * processors and checks that every game ends with a full scorecard. 
+ * It needs no display, so it runs on a server as well.
+ */
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class YahtzeeSoakRunner implements YahtzeeConstants {
+
+	/**
+	 * Play games with the greedy strategy
+	 * usage: YahtzeeSoakRunner [games] [players] [seed]
+	 * @param args
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		int nGames = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int nPlayers = args.length > 1 ? Integer.parseInt(args[1]) : MAX_PLAYERS;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+		int nThreads = Runtime.getRuntime().availableProcessors();
+
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+		final YahtzeeStrategy strategy = new GreedyStrategy();
+		final String[] playerNames = new String[nPlayers];
+		for (int i = 0; i < nPlayers; i++) playerNames[i] = "Player " + (i + 1);
+		final AtomicInteger failures = new AtomicInteger();
+		final AtomicLong points = new AtomicLong();
+		DiceRandom root = new SplitMix(seed);
+		long start = System.nanoTime();
+		for (int i = 0; i < nGames; i++) {
+			final DiceRandom rgen = root.split();
+			executor.execute(new Runnable() {
+				public void run() {
+					try {
+						String failure = playGame(strategy, playerNames, rgen, points);
+						if (failure != null) {
+							failures.incrementAndGet();
+							System.err.println(failure);
+						}
+					} catch (RuntimeException ex) {
+						failures.incrementAndGet();
+						ex.printStackTrace();
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		double elapsed = (System.nanoTime() - start) / 1e9;
+
+		System.out.printf("%d games, %d players, %d threads, %.2f s, %.0f games/s%n", 
+				nGames, nPlayers, nThreads, elapsed, nGames / elapsed);
+		System.out.printf("mean score: %.1f%n", (double) points.get() / nGames / nPlayers);
+		System.out.printf("failures:   %d%n", failures.get());
+		if (failures.get() > 0) System.exit(1);
+	}
+
+	/**
+	 * Play a game and return why it failed or null if it succeeded
+	 * @param strategy
+	 * @param playerNames
+	 * @param rgen
+	 * @param points the total scores of the players are added to this
+	 * @return
+	 */
+	private static String playGame(YahtzeeStrategy strategy, String[] playerNames, DiceRandom rgen, 
+			AtomicLong points) {
+		HeadlessView view = new HeadlessView(strategy, playerNames.length);
+		YahtzeeGame game = new YahtzeeGame(view, playerNames, rgen);
+		game.play();
+		if (view.getTotalCount() != N_SCORING_CATEGORIES * playerNames.length) {
+			return "game shows " + view.getTotalCount() + " totals";
+		}
+		if (!view.getLastMessage().startsWith("Congratulations")) {
+			return "game ends with message " + view.getLastMessage();
+		}
+		for (int player = 0; player < playerNames.length; player++) {
+			long state = view.getPlayerState(player);
+			if (!YahtzeeState.isFinished(state)) {
+				return "scorecard of player " + player + " is not full";
+			}
+			if (YahtzeeState.totalScore(state) != game.getTotalScore(player)) {
+				return "scorecard of player " + player + " shows " + YahtzeeState.totalScore(state)
+						+ " instead of " + game.getTotalScore(player);
+			}
+			points.addAndGet(game.getTotalScore(player));
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,377 @@
+/*
+ * File: YahtzeeSolver.java
+ * ------------------------
+ * This program computes the optimal expected final score for every
+ * state of a solitaire Yahtzee game by backward dynamic programming 
+ * over the rules in YahtzeeRules, and stores the result in a binary
+ * file so that it only has to be computed once.
+ *
+ * A state is made of the categories already used, the score of the 
+ * upper section (capped at the bonus limit) and whether additional
+ * Yahtzees still earn a bonus. The value of a state is the expected
+ * score of the remaining turns when playing optimally.
+ *
+ * The same program solves a column of TrippleYahtzee, where every score
+ * and the bonus limit are multiplied by the number of the column: the
+ * methods taking a multiplier work on such a column, the others on
+ * standard Yahtzee.
+ */
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.concurrent.*;
+
+public class YahtzeeSolver implements YahtzeeConstants {
+
+	/**
+	 * Compute the expected value table and save it
+	 * usage: YahtzeeSolver [file]
+	 * @param args
+	 */
+	public static void main(String[] args) throws IOException {
+		File file = new File(args.length > 0 ? args[0] : EV_TABLE_FILE);
+		long start = System.nanoTime();
+		float[] table = solve(Runtime.getRuntime().availableProcessors());
+		long elapsed = System.nanoTime() - start;
+		save(table, file);
+		System.out.println("expected score: " + table[stateIndex(YahtzeeState.INITIAL)]);
+		System.out.println("solved in " + elapsed / 1000000 + " ms, saved to " + file);
+	}
+
+	/**
+	 * Compute the expected value of every state. States which use the same
+	 * number of categories only depend on states with more used categories,
+	 * so each layer is solved in parallel once the previous one is complete.
+	 * @param parallelism number of threads to use
+	 * @return the table indexed by stateIndex
+	 */
+	public static float[] solve(int parallelism) {
+		float[] table = new float[N_STATES];
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+		try {
+			solve(FloatBuffer.wrap(table), 1, pool);
+		} finally {
+			pool.shutdown();
+		}
+		return table;
+	}
+
+	/**
+	 * Compute the expected value of every state of a column with the given
+	 * multiplier into a table of tableSize(multiplier) entries, which may be
+	 * a direct buffer outside of the heap
+	 * @param table
+	 * @param multiplier the multiplier of the column, 1 for standard Yahtzee
+	 * @param pool runs the tasks of each layer
+	 */
+	public static void solve(FloatBuffer table, int multiplier, ForkJoinPool pool) {
+		for (int used = N_SCORING_CATEGORIES - 1; used >= 0; used--) {
+			int[] masks = masksWithBits(used);
+			pool.invoke(new LayerTask(table, multiplier, masks, 0, masks.length));
+		}
+	}
+
+	/**
+	 * Return the number of states of a column with the given multiplier
+	 * @param multiplier
+	 * @return
+	 */
+	public static int tableSize(int multiplier) {
+		return N_MASKS * (YahtzeeRules.SCORE_UPPER_BONUS_LIMIT * multiplier + 1) * 2;
+	}
+
+	/**
+	 * Return the index of a state in the expected value table
+	 * @param usedMask bit mask of the used categories, see YahtzeeState.categoryBit
+	 * @param upperScore score of the upper section, capped at the bonus limit
+	 * @param allowAdditionalYahtzees whether additional Yahtzees still earn a bonus
+	 * @return
+	 */
+	public static int stateIndex(int usedMask, int upperScore, boolean allowAdditionalYahtzees) {
+		return stateIndex(usedMask, upperScore, allowAdditionalYahtzees, 1);
+	}
+
+	/**
+	 * Return the index of a state in the table of a column
+	 * @param usedMask bit mask of the used categories, see YahtzeeState.categoryBit
+	 * @param upperScore score of the upper section, capped at the bonus limit
+	 * @param allowAdditionalYahtzees whether additional Yahtzees still earn a bonus
+	 * @param multiplier the multiplier of the column
+	 * @return
+	 */
+	public static int stateIndex(int usedMask, int upperScore, boolean allowAdditionalYahtzees, int multiplier) {
+		int limit = YahtzeeRules.SCORE_UPPER_BONUS_LIMIT * multiplier;
+		int upper = Math.min(upperScore, limit);
+		return ((usedMask * (limit + 1)) + upper) * 2 + (allowAdditionalYahtzees ? 1 : 0);
+	}
+
+	/**
+	 * Return the index of a packed state in the expected value table
+	 * @param state see YahtzeeState
+	 * @return
+	 */
+	public static int stateIndex(long state) {
+		return stateIndex(state, 1);
+	}
+
+	public static int stateIndex(long state, int multiplier) {
+		return stateIndex(YahtzeeState.usedMask(state), YahtzeeState.upperScore(state), 
+				YahtzeeState.allowsAdditionalYahtzees(state), multiplier);
+	}
+
+	/**
+	 * Compute for every roll of all dice the best value when it is the last
+	 * roll of the turn: the score of the best category plus the expected 
+	 * value of the following state.
+	 * @param table expected values of the following states
+	 * @param state see YahtzeeState
+	 * @param rollValues receives the value of each roll
+	 */
+	public static void scoreRolls(FloatBuffer table, long state, double[] rollValues) {
+		scoreRolls(table, state, 1, rollValues);
+	}
+
+	public static void scoreRolls(FloatBuffer table, long state, int multiplier, double[] rollValues) {
+		for (int roll = 0; roll < DiceMultisets.N_ROLLS; roll++) {
+			double best = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < N_SCORING_CATEGORIES; i++) {
+				int category = SCORING_CATEGORIES[i];
+				if (YahtzeeState.isUsed(state, category)) continue;
+				double value = categoryValue(table, state, roll, category, multiplier);
+				if (value > best) best = value;
+			}
+			rollValues[roll] = best;
+		}
+	}
+
+	/**
+	 * Return the score of putting a roll into a category, including a 
+	 * reached upper bonus, plus the expected value of the resulting state
+	 * @param table
+	 * @param state see YahtzeeState
+	 * @param roll multiset index of the roll
+	 * @param category
+	 * @return
+	 */
+	public static double categoryValue(FloatBuffer table, long state, int roll, int category) {
+		return categoryValue(table, state, roll, category, 1);
+	}
+
+	public static double categoryValue(FloatBuffer table, long state, int roll, int category, int multiplier) {
+		long next = YahtzeeState.score(state, DiceMultisets.scoreIndexOf(roll), category, multiplier);
+		int score = YahtzeeState.totalScore(next, multiplier) - YahtzeeState.totalScore(state, multiplier);
+		return score + table.get(stateIndex(next, multiplier));
+	}
+
+	/**
+	 * Compute the expected value of keeping each set of dice and rolling
+	 * the others once, given the value of each roll
+	 * @param rollValues
+	 * @param keepValues receives the value of each keep
+	 */
+	public static void expectKeeps(double[] rollValues, double[] keepValues) {
+		KeepTransitions.expectedValues(rollValues, keepValues);
+	}
+
+	/**
+	 * Compute the value of each roll when the player keeps the best dice
+	 * @param keepValues
+	 * @param rollValues receives the value of each roll
+	 */
+	public static void chooseKeeps(double[] keepValues, double[] rollValues) {
+		for (int roll = 0; roll < DiceMultisets.N_ROLLS; roll++) {
+			int[] keeps = DiceMultisets.keepsOf(roll);
+			double best = Double.NEGATIVE_INFINITY;
+			for (int i = 0; i < keeps.length; i++) {
+				if (keepValues[keeps[i]] > best) best = keepValues[keeps[i]];
+			}
+			rollValues[roll] = best;
+		}
+	}
+
+	/**
+	 * Compute the expected value of a state from the table entries of the 
+	 * following states
+	 * @param table
+	 * @param state see YahtzeeState
+	 * @param rollValues scratch array of DiceMultisets.N_ROLLS entries
+	 * @param keepValues scratch array of DiceMultisets.N_KEEPS entries
+	 * @return
+	 */
+	public static double solveState(FloatBuffer table, long state, double[] rollValues, double[] keepValues) {
+		return solveState(table, state, 1, rollValues, keepValues);
+	}
+
+	public static double solveState(FloatBuffer table, long state, int multiplier, 
+			double[] rollValues, double[] keepValues) {
+		scoreRolls(table, state, multiplier, rollValues);
+		for (int roll = 1; roll < YahtzeeRules.N_ROLLS; roll++) {
+			expectKeeps(rollValues, keepValues);
+			chooseKeeps(keepValues, rollValues);
+		}
+		double value = 0;
+		for (int roll = 0; roll < DiceMultisets.N_ROLLS; roll++) {
+			value += DiceMultisets.rollProbability(roll) * rollValues[roll];
+		}
+		return value;
+	}
+
+	/**
+	 * Save the table to a file, replacing it only once it is complete
+	 * @param table
+	 * @param file
+	 */
+	public static void save(float[] table, File file) throws IOException {
+		File temp = new File(file.getPath() + ".tmp");
+		RandomAccessFile out = new RandomAccessFile(temp, "rw");
+		try {
+			out.setLength(0);
+			FileChannel channel = out.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(VERSION).putInt(table.length).flip();
+			while (header.hasRemaining()) channel.write(header);
+			ByteBuffer buffer = ByteBuffer.allocate(table.length * 4);
+			buffer.asFloatBuffer().put(table);
+			while (buffer.hasRemaining()) channel.write(buffer);
+			channel.force(true);
+		} finally {
+			out.close();
+		}
+		if (!temp.renameTo(file)) {
+			file.delete();
+			if (!temp.renameTo(file)) throw new IOException("cannot rename " + temp + " to " + file);
+		}
+	}
+
+	/**
+	 * Load the table from a file into memory
+	 * @param file
+	 * @return
+	 */
+	public static float[] load(File file) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0);
+			buffer.flip();
+			float[] table = new float[N_STATES];
+			checkedTable(buffer, file).get(table);
+			return table;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Check the header of a saved table and return a view of its values
+	 * @param buffer contents of the file
+	 * @param file used for error messages
+	 * @return
+	 */
+	static FloatBuffer checkedTable(ByteBuffer buffer, File file) throws IOException {
+		if (buffer.remaining() != HEADER_SIZE + N_STATES * 4
+		    || buffer.getInt() != MAGIC || buffer.getInt() != VERSION 
+		    || buffer.getInt() != N_STATES) {
+			throw new IOException(file + " is not a valid expected value table");
+		}
+		return buffer.slice().asFloatBuffer();
+	}
+
+	/* Return all used category masks with the given number of categories */
+	private static int[] masksWithBits(int bits) {
+		int count = 0;
+		for (int mask = 0; mask < N_MASKS; mask++) {
+			if (Integer.bitCount(mask) == bits) count++;
+		}
+		int[] masks = new int[count];
+		count = 0;
+		for (int mask = 0; mask < N_MASKS; mask++) {
+			if (Integer.bitCount(mask) == bits) masks[count++] = mask;
+		}
+		return masks;
+	}
+
+	/* Return the highest upper score reachable without Yahtzee bonuses */
+	private static int maxUpperScore(int usedMask) {
+		int max = 0;
+		for (int category = ONES; category <= SIXES; category++) {
+			if ((usedMask & YahtzeeState.categoryBit(category)) != 0) max += N_DICE * (category + 1);
+		}
+		return max;
+	}
+
+	/* Solves the states of a range of used category masks */
+	private static class LayerTask extends RecursiveAction {
+
+		public LayerTask(FloatBuffer table, int multiplier, int[] masks, int from, int to) {
+			this.table = table;
+			this.multiplier = multiplier;
+			this.masks = masks;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from > MASKS_PER_TASK) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new LayerTask(table, multiplier, masks, from, middle), 
+						new LayerTask(table, multiplier, masks, middle, to));
+				return;
+			}
+			int limit = YahtzeeRules.SCORE_UPPER_BONUS_LIMIT * multiplier;
+			double[] rollValues = new double[DiceMultisets.N_ROLLS];
+			double[] keepValues = new double[DiceMultisets.N_KEEPS];
+			for (int i = from; i < to; i++) {
+				int mask = masks[i];
+				boolean yahtzeeUsed = (mask & YahtzeeState.categoryBit(YAHTZEE)) != 0;
+				/* 
+				 * without a scored Yahtzee no bonus can raise the upper score, 
+				 * which then is a multiple of the multiplier
+				 */
+				int maxUpper = yahtzeeUsed ? limit : Math.min(maxUpperScore(mask) * multiplier, limit);
+				int step = yahtzeeUsed ? 1 : multiplier;
+				for (int upper = 0; upper <= maxUpper; upper += step) {
+					solveAndStore(YahtzeeState.of(mask, upper, 0, true), rollValues, keepValues);
+					/* additional Yahtzees can only be lost by scoring the Yahtzee category */
+					if (yahtzeeUsed) {
+						solveAndStore(YahtzeeState.of(mask, upper, 0, false), rollValues, keepValues);
+					}
+				}
+			}
+		}
+
+		private void solveAndStore(long state, double[] rollValues, double[] keepValues) {
+			double value = solveState(table, state, multiplier, rollValues, keepValues);
+			table.put(stateIndex(state, multiplier), (float) value);
+		}
+
+		private static final long serialVersionUID = 1L;
+
+		private FloatBuffer table;
+		private int multiplier;
+		private int[] masks;
+		private int from;
+		private int to;
+	}
+
+	/** The file the expected value table is stored in */
+	public static final String EV_TABLE_FILE = "YahtzeeEV.dat";
+
+	/** The scoring categories in the order of their bits in the used mask */
+	public static final int[] SCORING_CATEGORIES = {
+		ONES, TWOS, THREES, FOURS, FIVES, SIXES, 
+		THREE_OF_A_KIND, FOUR_OF_A_KIND, FULL_HOUSE, SMALL_STRAIGHT, 
+		LARGE_STRAIGHT, YAHTZEE, CHANCE
+	};
+
+	/* Private constants */
+	private static final int N_MASKS = 1 << N_SCORING_CATEGORIES;
+	private static final int N_STATES = tableSize(1);
+	private static final int MAGIC = 0x59545a45;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 12;
+	private static final int MASKS_PER_TASK = 8;
+
+}
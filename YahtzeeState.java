@@ -0,0 +1,165 @@
+/*
+ * File: YahtzeeState.java
+ * -----------------------
+ * This class packs the scorecard of one player (or one column of a 
+ * player in TrippleYahtzee) into a single long, so that many states can
+ * be kept in a primitive array. All methods are pure functions on the
+ * packed value.
+ *
+ * bits  0-12  used categories, see categoryBit
+ * bits 13-22  score of the upper section
+ * bits 23-34  score of the lower section
+ * bit  35     set while additional Yahtzees still earn a bonus
+ */
+
+public class YahtzeeState implements YahtzeeConstants {
+
+	/**
+	 * Return the bit used for a scoring category in the used categories mask
+	 * @param category
+	 * @return
+	 */
+	public static int categoryBit(int category) {
+		return 1 << (category < UPPER_SCORE ? category : category - 2);
+	}
+
+	/**
+	 * Create a packed state from its parts
+	 * @param usedMask
+	 * @param upperScore
+	 * @param lowerScore
+	 * @param allowAdditionalYahtzees
+	 * @return
+	 */
+	public static long of(int usedMask, int upperScore, int lowerScore, boolean allowAdditionalYahtzees) {
+		return usedMask
+				| ((long) upperScore << UPPER_SHIFT)
+				| ((long) lowerScore << LOWER_SHIFT)
+				| (allowAdditionalYahtzees ? 1L << ALLOW_SHIFT : 0);
+	}
+
+	public static int usedMask(long state) {
+		return (int) (state & USED_MASK);
+	}
+
+	public static boolean isUsed(long state, int category) {
+		return (state & categoryBit(category)) != 0;
+	}
+
+	public static boolean isFinished(long state) {
+		return (state & USED_MASK) == USED_MASK;
+	}
+
+	public static int upperScore(long state) {
+		return (int) (state >>> UPPER_SHIFT) & UPPER_MASK;
+	}
+
+	public static int lowerScore(long state) {
+		return (int) (state >>> LOWER_SHIFT) & LOWER_MASK;
+	}
+
+	public static boolean allowsAdditionalYahtzees(long state) {
+		return (state & (1L << ALLOW_SHIFT)) != 0;
+	}
+
+	/**
+	 * Return whether the upper bonus has been reached
+	 * @param state
+	 * @param multiplier the multiplier of the column, 1 for standard Yahtzee
+	 * @return
+	 */
+	public static boolean hasUpperBonus(long state, int multiplier) {
+		return upperScore(state) >= YahtzeeRules.SCORE_UPPER_BONUS_LIMIT * multiplier;
+	}
+
+	/**
+	 * Return the total score including the upper bonus
+	 * @param state
+	 * @param multiplier the multiplier of the column, 1 for standard Yahtzee
+	 * @return
+	 */
+	public static int totalScore(long state, int multiplier) {
+		int total = upperScore(state) + lowerScore(state);
+		if (hasUpperBonus(state, multiplier)) total += YahtzeeRules.SCORE_UPPER_BONUS * multiplier;
+		return total;
+	}
+
+	public static int totalScore(long state) {
+		return totalScore(state, 1);
+	}
+
+	/**
+	 * Return the score written into a category for a roll of the standard
+	 * dice, see YahtzeeEngine.categoryScore
+	 * @param state
+	 * @param rollIndex index of the roll in the YahtzeeScoreTable
+	 * @param category
+	 * @param multiplier the multiplier of the column, 1 for standard Yahtzee
+	 * @return
+	 */
+	public static int categoryScore(long state, int rollIndex, int category, int multiplier) {
+		return YahtzeeEngine.STANDARD.categoryScore(state, rollIndex, category, multiplier);
+	}
+
+	/**
+	 * Return the state after scoring a roll of the standard dice in an 
+	 * unused category
+	 * @param state
+	 * @param rollIndex index of the roll in the YahtzeeScoreTable
+	 * @param category
+	 * @param multiplier the multiplier of the column, 1 for standard Yahtzee
+	 * @return
+	 */
+	public static long score(long state, int rollIndex, int category, int multiplier) {
+		return add(state, category, categoryScore(state, rollIndex, category, multiplier));
+	}
+
+	public static long score(long state, int rollIndex, int category) {
+		return score(state, rollIndex, category, 1);
+	}
+
+	/**
+	 * Return the state after writing a score into an unused category. A
+	 * Yahtzee scored with 0 ends the bonus for additional Yahtzees.
+	 * @param state
+	 * @param category
+	 * @param score the score written into the category
+	 * @return
+	 */
+	public static long add(long state, int category, int score) {
+		long next = state | categoryBit(category);
+		if (category == YAHTZEE && score == 0) {
+			next &= ~(1L << ALLOW_SHIFT);
+		}
+		if (category < UPPER_SCORE) {
+			return next + ((long) score << UPPER_SHIFT);
+		} else {
+			return next + ((long) score << LOWER_SHIFT);
+		}
+	}
+
+	/**
+	 * Return the state with the upper score capped at the bonus limit, as 
+	 * used by the solver
+	 * @param state
+	 * @param multiplier the multiplier of the column, 1 for standard Yahtzee
+	 * @return
+	 */
+	public static long capUpperScore(long state, int multiplier) {
+		int limit = YahtzeeRules.SCORE_UPPER_BONUS_LIMIT * multiplier;
+		if (upperScore(state) <= limit) return state;
+		return (state & ~((long) UPPER_MASK << UPPER_SHIFT)) | ((long) limit << UPPER_SHIFT);
+	}
+
+	/* Private constants */
+	private static final int USED_MASK = (1 << N_SCORING_CATEGORIES) - 1;
+	private static final int UPPER_SHIFT = N_SCORING_CATEGORIES;
+	private static final int UPPER_MASK = (1 << 10) - 1;
+	private static final int LOWER_SHIFT = UPPER_SHIFT + 10;
+	private static final int LOWER_MASK = (1 << 12) - 1;
+	private static final int ALLOW_SHIFT = LOWER_SHIFT + 12;
+
+	/** The state of an empty scorecard */
+	public static final long INITIAL = 1L << ALLOW_SHIFT;
+
+}
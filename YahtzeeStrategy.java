@@ -0,0 +1,29 @@
+/*
+ * File: YahtzeeStrategy.java
+ * --------------------------
+ * This interface declares the decisions a player has to make during a
+ * game of Yahtzee, so that games can be played without the graphical
+ * display.
+ */
+
+public interface YahtzeeStrategy {
+
+	/**
+	 * Decide which dice to roll again. Implementations are shared between
+	 * threads and must therefore not keep any state between calls.
+	 * @param dice the current dice
+	 * @param roll the number of the roll just made (starting with 1)
+	 * @param state the packed scorecard of the player, see YahtzeeState
+	 * @return bit mask of the dice to roll again, 0 to keep all dice
+	 */
+	public int chooseReroll(int[] dice, int roll, long state);
+
+	/**
+	 * Decide in which category the dice are scored.
+	 * @param dice the final dice of the turn
+	 * @param state the packed scorecard of the player, see YahtzeeState
+	 * @return an unused scoring category
+	 */
+	public int chooseCategory(int[] dice, long state);
+
+}
@@ -0,0 +1,241 @@
+/*
+ * File: YahtzeeTable.java
+ * -----------------------
+ * This class plays one game of Yahtzee as a state machine driven by 
+ * events (roll, re-roll, score) instead of a thread waiting for the
+ * display. Events can be submitted from any thread; they are queued
+ * and processed in order on a shared executor, never on more than one
+ * thread at a time, so thousands of tables can share a few threads.
+ */
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public class YahtzeeTable implements Runnable, YahtzeeConstants {
+
+	/** Event: roll all dice at the start of the turn */
+	public static final int ROLL = 1;
+
+	/** Event: roll the dice given by the bit mask argument again */
+	public static final int REROLL = 2;
+
+	/** Event: score the dice in the category given as argument */
+	public static final int SCORE = 3;
+
+	/**
+	 * Creates a table, the game starts with start()
+	 * @param id
+	 * @param nPlayers
+	 * @param rgen used for the dice of this table only
+	 * @param listener
+	 * @param executor runs the processing of the events
+	 */
+	public YahtzeeTable(int id, int nPlayers, DiceRandom rgen, TableListener listener, Executor executor) {
+		this.id = id;
+		this.rgen = rgen;
+		this.listener = listener;
+		this.executor = executor;
+		playerStates = new long[nPlayers];
+	}
+
+	/**
+	 * Start a new game on this table
+	 */
+	public void start() {
+		submit(START, 0);
+	}
+
+	/**
+	 * Queue an event for processing
+	 * @param type ROLL, REROLL or SCORE
+	 * @param argument the bit mask for REROLL, the category for SCORE
+	 * @throws IllegalArgumentException if the argument does not fit in a byte
+	 */
+	public void submit(int type, int argument) {
+		if (argument < 0 || argument > 0xff) {
+			throw new IllegalArgumentException("event argument out of range: " + argument);
+		}
+		boolean schedule = false;
+		synchronized (this) {
+			if (queueSize == queue.length) {
+				int[] bigger = new int[2 * queue.length];
+				for (int i = 0; i < queueSize; i++) {
+					bigger[i] = queue[(queueHead + i) % queue.length];
+				}
+				queue = bigger;
+				queueHead = 0;
+			}
+			queue[(queueHead + queueSize) % queue.length] = (type << 8) | argument;
+			queueSize++;
+			if (!scheduled) {
+				scheduled = true;
+				schedule = true;
+			}
+		}
+		if (schedule) executor.execute(this);
+	}
+
+	/**
+	 * Process a few queued events, then give the thread to the other tables
+	 */
+	public void run() {
+		for (int i = 0; i < EVENTS_PER_RUN; i++) {
+			int event;
+			synchronized (this) {
+				if (queueSize == 0) {
+					scheduled = false;
+					return;
+				}
+				event = queue[queueHead];
+				queueHead = (queueHead + 1) % queue.length;
+				queueSize--;
+			}
+			process(event >> 8, event & 0xff);
+		}
+		synchronized (this) {
+			if (queueSize == 0) {
+				scheduled = false;
+				return;
+			}
+		}
+		executor.execute(this);
+	}
+
+	/* Apply a single event to the game */
+	private void process(int type, int argument) {
+		switch (type) {
+		case START:
+			Arrays.fill(playerStates, YahtzeeState.INITIAL);
+			round = 0;
+			currentPlayer = 0;
+			startTurn();
+			break;
+		case ROLL:
+			if (roll != 0 || round >= N_SCORING_CATEGORIES) {
+				reject();
+			} else {
+				rollDice(YahtzeeRules.ALL_DICE);
+			}
+			break;
+		case REROLL:
+			if (roll == 0 || roll >= YahtzeeRules.N_ROLLS) {
+				reject();
+			} else {
+				rollDice(argument & YahtzeeRules.ALL_DICE);
+			}
+			break;
+		case SCORE:
+			if (roll == 0 || !YahtzeeEngine.isScoringCategory(argument) 
+			    || YahtzeeState.isUsed(playerStates[currentPlayer], argument)) {
+				reject();
+			} else {
+				score(argument);
+			}
+			break;
+		default:
+			reject();
+		}
+	}
+
+	private void startTurn() {
+		roll = 0;
+		turnStartNanos = System.nanoTime();
+		listener.tableChanged(this, currentPlayer, TableListener.TURN_STARTED);
+	}
+
+	private void rollDice(int rerollMask) {
+		YahtzeeRules.rollDice(dice, rerollMask, rgen);
+		roll++;
+		listener.tableChanged(this, currentPlayer, TableListener.DICE_ROLLED);
+	}
+
+	private void score(int category) {
+		int player = currentPlayer;
+		playerStates[player] = YahtzeeState.score(playerStates[player], 
+				YahtzeeScoreTable.indexOf(dice), category);
+		roll = 0;
+		listener.tableChanged(this, player, TableListener.SCORED);
+		currentPlayer++;
+		if (currentPlayer == playerStates.length) {
+			currentPlayer = 0;
+			round++;
+		}
+		if (round == N_SCORING_CATEGORIES) {
+			listener.tableChanged(this, player, TableListener.GAME_OVER);
+		} else {
+			startTurn();
+		}
+	}
+
+	private void reject() {
+		listener.tableChanged(this, currentPlayer, TableListener.REJECTED);
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public int getPlayerCount() {
+		return playerStates.length;
+	}
+
+	public int getCurrentPlayer() {
+		return currentPlayer;
+	}
+
+	/**
+	 * Return the number of rolls made in the current turn
+	 * @return
+	 */
+	public int getRoll() {
+		return roll;
+	}
+
+	/**
+	 * Return the current dice. The array belongs to the table and may only
+	 * be read from the listener.
+	 * @return
+	 */
+	public int[] getDice() {
+		return dice;
+	}
+
+	/**
+	 * Return the packed scorecard of a player, see YahtzeeState
+	 * @param player
+	 * @return
+	 */
+	public long getPlayerState(int player) {
+		return playerStates[player];
+	}
+
+	/**
+	 * Return when the current turn started, in System.nanoTime
+	 * @return
+	 */
+	public long getTurnStartNanos() {
+		return turnStartNanos;
+	}
+
+	/* Private constants */
+	private static final int START = 0;
+	private static final int INITIAL_QUEUE_SIZE = 4;
+	private static final int EVENTS_PER_RUN = 1;
+
+	/* Private instance variables */
+	private final int id;
+	private final DiceRandom rgen;
+	private final TableListener listener;
+	private final Executor executor;
+	private final long[] playerStates;
+	private final int[] dice = new int[N_DICE];
+	private int round;
+	private int currentPlayer;
+	private int roll;
+	private long turnStartNanos;
+	private int[] queue = new int[INITIAL_QUEUE_SIZE];
+	private int queueHead;
+	private int queueSize;
+	private boolean scheduled;
+
+}
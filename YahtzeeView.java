@@ -0,0 +1,62 @@
+/*
+ * File: YahtzeeView.java
+ * ----------------------
+ * This interface declares the display operations used while playing a
+ * game of Yahtzee, so that a game can be shown by YahtzeeDisplay or 
+ * played without any window, see HeadlessView.
+ */
+
+public interface YahtzeeView {
+
+	/**
+	 * Wait until the player clicks the roll button
+	 * @param player the column of the player on the scorecard
+	 */
+	public void waitForPlayerToClickRoll(int player);
+
+	/**
+	 * Show the dice
+	 * @param dice
+	 */
+	public void displayDice(int[] dice);
+
+	/**
+	 * Wait until the player has selected the dice to roll again
+	 */
+	public void waitForPlayerToSelectDice();
+
+	/**
+	 * Return whether the player has selected a die to roll again
+	 * @param index
+	 * @return
+	 */
+	public boolean isDieSelected(int index);
+
+	/**
+	 * Wait until the player selects a category and return it
+	 * @return
+	 */
+	public int waitForPlayerToSelectCategory();
+
+	/**
+	 * Show a score on the scorecard, views may hold it back until the 
+	 * next flushScorecard
+	 * @param category
+	 * @param player the column of the player on the scorecard
+	 * @param score
+	 */
+	public void updateScorecard(int category, int player, int score);
+
+	/**
+	 * Show all scores updated since the last flush, called at the end of
+	 * each turn
+	 */
+	public void flushScorecard();
+
+	/**
+	 * Show a message below the dice
+	 * @param message
+	 */
+	public void printMessage(String message);
+
+}